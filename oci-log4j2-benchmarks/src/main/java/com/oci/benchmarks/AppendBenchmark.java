@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Producer side cost of logger.info() with the oci appender vs the log4j2 AsyncAppender and async loggers.
+ * Throughput plus latency percentiles (SampleTime), 1 and 4 producer threads; allocation rate with -prof gc:
+ *
+ * java -jar oci-log4j2-benchmarks/target/benchmarks.jar AppendBenchmark -prof gc
+ *
+ * When producers outpace the consumer the oci appender and the AsyncAppender (blocking=false) drop events,
+ * the async loggers wait: the delivered/dropped counts are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppendBenchmark {
+
+    private static final String REQUEST_ID = "3f2b8c1e-9a4d-4c7e-b2f1-6d8e0a5c7b94";
+    private static final String STATUS = "200";
+
+    @Param({ "oci", "asyncAppender", "asyncLogger" })
+    String target;
+
+    @Param({ "50" })
+    int batchSize;
+
+    private BenchmarkContexts contexts;
+
+    @Setup
+    public void setup() {
+        contexts = BenchmarkContexts.create(target, batchSize, 100, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n[AppendBenchmark] target=%s %s%n", target, contexts.report());
+        contexts.stop();
+    }
+
+    @Benchmark
+    public void append() {
+        contexts.logger.info("request {} completed, status={}", REQUEST_ID, STATUS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void append4Threads() {
+        contexts.logger.info("request {} completed, status={}", REQUEST_ID, STATUS);
+    }
+}
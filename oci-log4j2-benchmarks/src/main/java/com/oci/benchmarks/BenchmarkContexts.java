@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AsyncAppender;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Programmatic logger contexts for the benchmarks: the same logger and layout on
+ *   oci           -> OciAsyncAppender on a stub client
+ *   asyncAppender -> log4j2 AsyncAppender -> DiscardingAppender
+ *   asyncLogger   -> AsyncLoggerContext (disruptor) -> DiscardingAppender
+ */
+final class BenchmarkContexts {
+
+    static final String LOGGER = "bench";
+
+    static final Layout<? extends Serializable> LAYOUT = PatternLayout.newBuilder()
+            .withPattern("%d{HH:mm:ss.SSS} [%t] %-5level %logger{1} - %msg%n")
+            .withCharset(StandardCharsets.UTF_8)
+            .build();
+
+    final LoggerContext context;
+    final Logger logger;
+    final StubbedOciAppender ociAppender;
+    final DiscardingAppender sink;
+
+    private BenchmarkContexts(LoggerContext context, StubbedOciAppender ociAppender, DiscardingAppender sink) {
+        this.context = context;
+        this.logger = context.getLogger(LOGGER);
+        this.ociAppender = ociAppender;
+        this.sink = sink;
+    }
+
+    static BenchmarkContexts create(String target, int batchSize, long flushIntervalMs, long latencyMs) {
+        switch (target) {
+            case "oci": {
+                LoggerContext context = new LoggerContext("oci-bench");
+                StubbedOciAppender appender = new StubbedOciAppender("oci", LAYOUT, batchSize, flushIntervalMs, latencyMs);
+                start(context, appender);
+                return new BenchmarkContexts(context, appender, null);
+            }
+            case "asyncAppender": {
+                LoggerContext context = new LoggerContext("async-appender-bench");
+                Configuration config = new DefaultConfiguration();
+                DiscardingAppender sink = new DiscardingAppender("sink", LAYOUT);
+                sink.start();
+                config.addAppender(sink);
+                AsyncAppender async = AsyncAppender.newBuilder()
+                        .setName("async")
+                        .setAppenderRefs(new AppenderRef[] { AppenderRef.createAppenderRef("sink", null, null) })
+                        .setConfiguration(config)
+                        .setBlocking(false)
+                        .setBufferSize(8192)
+                        .build();
+                start(context, config, async);
+                return new BenchmarkContexts(context, null, sink);
+            }
+            case "asyncLogger": {
+                LoggerContext context = new AsyncLoggerContext("async-logger-bench");
+                DiscardingAppender sink = new DiscardingAppender("sink", LAYOUT);
+                start(context, sink);
+                return new BenchmarkContexts(context, null, sink);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown target " + target);
+        }
+    }
+
+    static void start(LoggerContext context, Appender appender) {
+        start(context, new DefaultConfiguration(), appender);
+    }
+
+    private static void start(LoggerContext context, Configuration config, Appender appender) {
+        context.start(config);
+        appender.start();
+        config.addAppender(appender);
+        LoggerConfig loggerConfig = new LoggerConfig(LOGGER, Level.INFO, false);
+        loggerConfig.addAppender(appender, Level.INFO, null);
+        config.addLogger(LOGGER, loggerConfig);
+        context.updateLoggers();
+    }
+
+    /** Events accepted by the target but not delivered to its sink */
+    String report() {
+        if (ociAppender != null) {
+            return "delivered=" + ociAppender.getStubClient().getEntries() + " requests=" + ociAppender.getStubClient().getRequests()
+                    + " dropped=" + ociAppender.getDroppedEvents();
+        }
+        return "delivered=" + sink.getEvents();
+    }
+
+    void stop() {
+        context.stop();
+    }
+}
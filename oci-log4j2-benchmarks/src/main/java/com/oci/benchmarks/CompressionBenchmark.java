@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.benchmarks;
+
+import com.oci.client.GzipCodec;
+import com.oci.client.PayloadBuffer;
+import com.oci.client.PayloadCodec;
+import com.oracle.bmc.http.client.Serialization;
+import com.oracle.bmc.loggingingestion.model.LogEntry;
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+import com.oracle.bmc.loggingingestion.model.PutLogsDetails;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of the PutLogs body per request: json serialization alone (codec=none) vs serialization + compression.
+ * The score is the time per request, divide by batchSize for the cpu per event.
+ * Bytes per event and compression ratio are printed at the end of each trial.
+ *
+ * java -jar oci-log4j2-benchmarks/target/benchmarks.jar CompressionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({ "10", "50", "200", "1000" })
+    int batchSize;
+
+    @Param({ "none", "gzip", "gzip-6" })
+    String codec;
+
+    private PutLogsDetails details;
+    private PayloadCodec payloadCodec;
+    private final PayloadBuffer json = new PayloadBuffer(64 * 1024);
+    private final PayloadBuffer body = new PayloadBuffer(64 * 1024);
+
+    @Setup
+    public void setup() throws Exception {
+        payloadCodec = "gzip-6".equals(codec) ? new GzipCodec(6) : PayloadCodec.forName(codec);
+        details = PutLogsDetails.builder()
+                .specversion("1.0")
+                .logEntryBatches(List.of(LogEntryBatch.builder()
+                        .entries(entries(batchSize))
+                        .source("log4j2-oci-async")
+                        .type("INFO")
+                        .subject("application")
+                        .defaultlogentrytime(new Date())
+                        .build()))
+                .build();
+    }
+
+    //pattern layout lines with the variable parts of a real log: time, thread, ids, numbers
+    static List<LogEntry> entries(int n) {
+        String[] loggers = { "com.acme.order.OrderService", "com.acme.http.RequestFilter", "com.acme.db.Repository" };
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<LogEntry> entries = new ArrayList<>(n);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            String data = String.format("%tT.%<tL [http-nio-8080-exec-%d] INFO  %s - request %s completed in %d ms, status=%d%n",
+                    new Date(now + i), random.nextInt(1, 50), loggers[i % loggers.length], UUID.randomUUID(),
+                    random.nextInt(1, 2000), random.nextBoolean() ? 200 : 404);
+            entries.add(LogEntry.builder().id(UUID.randomUUID().toString()).time(new Date(now + i)).data(data).build());
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        json.recycle(64 * 1024);
+        Serialization.getObjectMapper().writeValue(json, details);
+        if (payloadCodec == null) {
+            return json.size();
+        }
+        body.recycle(64 * 1024);
+        payloadCodec.encode(json.array(), json.size(), body);
+        return body.size();
+    }
+
+    @TearDown
+    public void report() throws Exception {
+        int raw = json.size();
+        int sent = encode();
+        System.out.printf("%n[CompressionBenchmark] batchSize=%d codec=%s bytes/event=%d ratio=%.2f%n",
+                batchSize, codec, sent / batchSize, (double) raw / sent);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.core.layout.ByteBufferDestinationHelper;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Sink of the log4j2 async appender/loggers used as baseline: encodes the event with the layout
+ * (the work our appender does when rendering a slot) and discards the bytes.
+ */
+public class DiscardingAppender extends AbstractAppender implements ByteBufferDestination {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+    private final LongAdder events = new LongAdder();
+
+    public DiscardingAppender(String name, Layout<? extends Serializable> layout) {
+        super(name, (Filter) null, layout, true, Property.EMPTY_ARRAY);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        //called by a single background thread (async appender/logger)
+        getLayout().encode(event, this);
+        buffer.clear();
+        events.increment();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buf) {
+        buf.clear();
+        return buf;
+    }
+
+    @Override
+    public void writeBytes(ByteBuffer data) {
+        ByteBufferDestinationHelper.writeToUnsynchronized(data, this);
+    }
+
+    @Override
+    public void writeBytes(byte[] data, int offset, int length) {
+        ByteBufferDestinationHelper.writeToUnsynchronized(data, offset, length, this);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Events per second delivered to a stub OciLoggingClient that takes latencyMs per PutLogs call:
+ * append, drain, LogEntry building, request assembly and dispatch.
+ * The producer stays below the ring capacity, so nothing is dropped and the score is the sustained rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final int EVENTS = 20_000;
+    //below the ring capacity (8192)
+    private static final int HIGH_WATER = 6000;
+
+    @Param({ "0", "10", "50" })
+    long latencyMs;
+
+    @Param({ "50", "500" })
+    int batchSize;
+
+    private StubbedOciAppender appender;
+    private LogEvent event;
+    private long target;
+
+    @Setup
+    public void setup() {
+        appender = new StubbedOciAppender("oci-e2e", BenchmarkContexts.LAYOUT, batchSize, 10, latencyMs);
+        appender.start();
+        event = Log4jLogEvent.newBuilder()
+                .setLoggerName("com.acme.order.OrderService")
+                .setLevel(Level.INFO)
+                .setThreadName("http-nio-8080-exec-1")
+                .setMessage(new SimpleMessage("request 3f2b8c1e-9a4d-4c7e-b2f1-6d8e0a5c7b94 completed, status=200"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n[EndToEndBenchmark] latencyMs=%d batchSize=%d requests=%d dropped=%d%n", latencyMs, batchSize,
+                appender.getStubClient().getRequests(), appender.getDroppedEvents());
+        appender.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void deliver() {
+        target += EVENTS;
+        for (int i = 0; i < EVENTS; i++) {
+            while (appender.getQueueSize() >= HIGH_WATER) {
+                Thread.onSpinWait();
+            }
+            appender.append(event);
+        }
+        while (appender.getStubClient().getEntries() + appender.getDroppedEvents() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import com.oci.appender.EntryIds;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of one LogEntry id: UUID.randomUUID() (SecureRandom + 36 chars, what every entry used to pay
+ * on every attempt) vs EntryIds (random prefix once per appender + sequence).
+ * With 4 threads the SecureRandom shared by randomUUID() is contended, as on a sender pool:
+ *
+ * java -jar oci-log4j2-benchmarks/target/benchmarks.jar EntryIdBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryIdBenchmark {
+
+    private final EntryIds entryIds = new EntryIds();
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String entryIds() {
+        return entryIds.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String randomUuid4Threads() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String entryIds4Threads() {
+        return entryIds.nextId();
+    }
+}
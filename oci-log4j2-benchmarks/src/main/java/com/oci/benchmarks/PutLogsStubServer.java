@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import com.oracle.bmc.http.client.Serialization;
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+import com.oracle.bmc.loggingingestion.model.PutLogsDetails;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Local Logging Ingestion endpoint: POST /20200831/logs/{logId}/actions/push, answered like OCI
+ * after latencyMs, with random 429/500 errors, a requests per second limit (429) and a body size limit (413).
+ * Accepted requests are parsed (gzip bodies included) to count the entries really delivered.
+ */
+final class PutLogsStubServer implements AutoCloseable {
+
+    private static final String PATH = "/20200831/logs/";
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "putlogs-stub");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long latencyMs;
+    private final double errorRate429;
+    private final double errorRate500;
+    private final int maxRequestsPerSecond;
+    private final int maxBodyBytes;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder tooLarge = new LongAdder();
+    //requests of the current second, for maxRequestsPerSecond
+    private final AtomicLong window = new AtomicLong();
+
+    /**
+     * @param maxRequestsPerSecond 0 = no limit
+     * @param maxBodyBytes 0 = no limit (OCI accepts up to 10 MB)
+     */
+    PutLogsStubServer(int port, long latencyMs, double errorRate429, double errorRate500, int maxRequestsPerSecond, int maxBodyBytes)
+            throws IOException {
+        this.latencyMs = latencyMs;
+        this.errorRate429 = errorRate429;
+        this.errorRate500 = errorRate500;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxBodyBytes = maxBodyBytes;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/actions/push")) {
+                reply(exchange, 404, "NotAuthorizedOrNotFound");
+                return;
+            }
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if (latencyMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (maxBodyBytes > 0 && body.length > maxBodyBytes) {
+                tooLarge.increment();
+                reply(exchange, 413, "RequestEntityTooLarge");
+            } else if (overLimit() || random.nextDouble() < errorRate429) {
+                throttled.increment();
+                reply(exchange, 429, "TooManyRequests");
+            } else if (random.nextDouble() < errorRate500) {
+                failed.increment();
+                reply(exchange, 500, "InternalServerError");
+            } else {
+                accept(exchange, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply(exchange, 500, "InternalServerError");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean overLimit() {
+        if (maxRequestsPerSecond <= 0) {
+            return false;
+        }
+        //high bits: the second, low 20 bits: the requests in it
+        long second = System.currentTimeMillis() / 1000;
+        while (true) {
+            long current = window.get();
+            long next = (current >>> 20) == second ? current + 1 : (second << 20) | 1;
+            if (window.compareAndSet(current, next)) {
+                return (next & 0xFFFFF) > maxRequestsPerSecond;
+            }
+        }
+    }
+
+    private void accept(HttpExchange exchange, byte[] body) throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        int count = 0;
+        try {
+            PutLogsDetails details = Serialization.getObjectMapper().readValue(in, PutLogsDetails.class);
+            for (LogEntryBatch batch : details.getLogEntryBatches()) {
+                count += batch.getEntries().size();
+            }
+        } catch (IOException | RuntimeException e) {
+            reply(exchange, 400, "InvalidParameter");
+            return;
+        }
+        requests.increment();
+        entries.add(count);
+        bytes.add(body.length);
+        exchange.getResponseHeaders().add("opc-request-id", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private static void reply(HttpExchange exchange, int status, String code) throws IOException {
+        byte[] json = ("{\"code\":\"" + code + "\",\"message\":\"putlogs stub\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("opc-request-id", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getEntries() {
+        return entries.sum();
+    }
+
+    String report() {
+        return "accepted requests=" + requests.sum() + " entries=" + entries.sum() + " bytes=" + bytes.sum()
+                + " | 429=" + throttled.sum() + " 500=" + failed.sum() + " 413=" + tooLarge.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+}
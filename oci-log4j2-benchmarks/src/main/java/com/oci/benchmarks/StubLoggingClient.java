@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import com.oci.client.OciLoggingClient;
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
+import com.oracle.bmc.loggingingestion.responses.PutLogsResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * OciLoggingClient that never leaves the jvm: counts the entries and sleeps latencyMs per request,
+ * like the round trip of a real PutLogs call.
+ */
+public class StubLoggingClient implements OciLoggingClient {
+
+    private final long latencyMs;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+
+    public StubLoggingClient(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public PutLogsResponse putLogs(PutLogsRequest request) {
+        if (latencyMs > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (LogEntryBatch batch : request.getPutLogsDetails().getLogEntryBatches()) {
+            entries.add(batch.getEntries().size());
+        }
+        requests.increment();
+        return PutLogsResponse.builder().build();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.benchmarks;
+
+import com.oci.appender.OciAsyncAppender;
+import org.apache.logging.log4j.core.Layout;
+
+import java.io.Serializable;
+
+/*
+ * The appender on a stub client, through the test constructor (no oci credentials) without stdout trace.
+ */
+public class StubbedOciAppender extends OciAsyncAppender {
+
+    private final StubLoggingClient client;
+
+    public StubbedOciAppender(String name, Layout<? extends Serializable> layout, int batchSize, long flushIntervalMs, long latencyMs) {
+        super(name, null, layout, true, batchSize, flushIntervalMs, false);
+        this.client = new StubLoggingClient(latencyMs);
+        setClientForTest(client);
+    }
+
+    public StubLoggingClient getStubClient() {
+        return client;
+    }
+}
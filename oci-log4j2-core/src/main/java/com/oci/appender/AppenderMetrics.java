@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+ * Counters of the appender pipeline. Everything recorded on the append() path is a LongAdder;
+ * gauges (queue depth, circuit state, flusher utilization) are read from the appender on demand.
+ */
+public final class AppenderMetrics implements AppenderMetricsMXBean {
+
+    final LongAdder appended = new LongAdder();
+    final LongAdder sent = new LongAdder();
+    //rejected by append() (ring full / overflow policy)
+    final LongAdder dropped = new LongAdder();
+    //removed from the ring by DROP_OLDEST
+    final LongAdder evicted = new LongAdder();
+    //repeats folded into a "[repeated N times]" entry (dedupWindowMs)
+    final LongAdder collapsed = new LongAdder();
+    //over the rate limit of their level (rateLimits)
+    final LongAdder rateLimited = new LongAdder();
+    //written to the fallback sink while the circuit of their log was open (fallbackOnOpenCircuit)
+    final LongAdder fallback = new LongAdder();
+    final LongAdder requests = new LongAdder();
+    final LongAdder retried = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    //refused by OCI with a non retryable error (4xx), not sent again
+    final LongAdder rejected = new LongAdder();
+    final Histogram requestEntries = new Histogram();
+    final Histogram requestBytes = new Histogram();
+    final Histogram putLogsMicros = new Histogram();
+    private final LongAdder circuitOpenCount = new LongAdder();
+    private final LongAdder circuitOpenMillis = new LongAdder();
+    //circuits (one per target log) currently not closed, and since when at least one is
+    private int openCircuits = 0;
+    private volatile long openSince = 0;
+    //sampled by the flusher thread only
+    private volatile long highWaterMark = 0;
+
+    private final LongSupplier queueDepth;
+    private final Supplier<String> circuitState;
+    private final DoubleSupplier flusherUtilization;
+
+    AppenderMetrics(LongSupplier queueDepth, Supplier<String> circuitState, DoubleSupplier flusherUtilization) {
+        this.queueDepth = queueDepth;
+        this.circuitState = circuitState;
+        this.flusherUtilization = flusherUtilization;
+    }
+
+    void sampleQueueDepth() {
+        long depth = queueDepth.getAsLong();
+        if (depth > highWaterMark) {
+            highWaterMark = depth;
+        }
+    }
+
+    void onRequestSent(int entries, long bytes, long elapsedNanos) {
+        requests.increment();
+        sent.add(entries);
+        requestEntries.record(entries);
+        requestBytes.record(bytes);
+        putLogsMicros.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    //closed: the circuit was closed before, false when a failed probe opens it again
+    synchronized void circuitOpened(long now, boolean closed) {
+        circuitOpenCount.increment();
+        if (closed && openCircuits++ == 0) {
+            openSince = now;
+        }
+    }
+
+    synchronized void circuitClosed(long now) {
+        if (openCircuits > 0 && --openCircuits == 0) {
+            circuitOpenMillis.add(now - openSince);
+            openSince = 0;
+        }
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.getAsLong();
+    }
+
+    @Override
+    public long getQueueHighWaterMark() {
+        return Math.max(highWaterMark, getQueueDepth());
+    }
+
+    @Override
+    public long getEventsAppended() {
+        return appended.sum();
+    }
+
+    @Override
+    public long getEventsSent() {
+        return sent.sum();
+    }
+
+    @Override
+    public long getEventsDropped() {
+        return dropped.sum() + evicted.sum();
+    }
+
+    @Override
+    public long getEventsCollapsed() {
+        return collapsed.sum();
+    }
+
+    @Override
+    public long getEventsRateLimited() {
+        return rateLimited.sum();
+    }
+
+    @Override
+    public long getEventsFallback() {
+        return fallback.sum();
+    }
+
+    @Override
+    public long getEventsRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getRequestsSent() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getRequestsRetried() {
+        return retried.sum();
+    }
+
+    @Override
+    public long getRequestsFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public double getRequestEntriesMean() {
+        return requestEntries.mean();
+    }
+
+    @Override
+    public long getRequestEntriesP99() {
+        return requestEntries.percentile(0.99);
+    }
+
+    @Override
+    public double getRequestBytesMean() {
+        return requestBytes.mean();
+    }
+
+    @Override
+    public long getRequestBytesP99() {
+        return requestBytes.percentile(0.99);
+    }
+
+    @Override
+    public long getPutLogsLatencyP50Micros() {
+        return putLogsMicros.percentile(0.50);
+    }
+
+    @Override
+    public long getPutLogsLatencyP90Micros() {
+        return putLogsMicros.percentile(0.90);
+    }
+
+    @Override
+    public long getPutLogsLatencyP99Micros() {
+        return putLogsMicros.percentile(0.99);
+    }
+
+    @Override
+    public long getPutLogsLatencyMaxMicros() {
+        return putLogsMicros.max();
+    }
+
+    @Override
+    public String getCircuitState() {
+        return circuitState.get();
+    }
+
+    @Override
+    public long getCircuitOpenCount() {
+        return circuitOpenCount.sum();
+    }
+
+    @Override
+    public long getCircuitOpenMillis() {
+        long since = openSince;
+        return circuitOpenMillis.sum() + (since != 0 ? System.currentTimeMillis() - since : 0L);
+    }
+
+    @Override
+    public double getFlusherUtilization() {
+        return flusherUtilization.getAsDouble();
+    }
+}
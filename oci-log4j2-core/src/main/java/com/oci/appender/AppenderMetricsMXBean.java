@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+/*
+ * JMX view of AppenderMetrics, registered as com.oci.appender:type=OciAsyncAppender,name=<appender name>
+ */
+public interface AppenderMetricsMXBean {
+
+    long getQueueDepth();
+
+    long getQueueHighWaterMark();
+
+    long getEventsAppended();
+
+    long getEventsSent();
+
+    long getEventsDropped();
+
+    long getEventsCollapsed();
+
+    long getEventsRateLimited();
+
+    long getEventsFallback();
+
+    long getEventsRejected();
+
+    long getRequestsSent();
+
+    long getRequestsRetried();
+
+    long getRequestsFailed();
+
+    double getRequestEntriesMean();
+
+    long getRequestEntriesP99();
+
+    double getRequestBytesMean();
+
+    long getRequestBytesP99();
+
+    long getPutLogsLatencyP50Micros();
+
+    long getPutLogsLatencyP90Micros();
+
+    long getPutLogsLatencyP99Micros();
+
+    long getPutLogsLatencyMaxMicros();
+
+    String getCircuitState();
+
+    long getCircuitOpenCount();
+
+    long getCircuitOpenMillis();
+
+    double getFlusherUtilization();
+}
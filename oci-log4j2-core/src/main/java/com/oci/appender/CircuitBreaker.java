@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+/*
+ * Circuit breaker of one target log, so a failing log does not stop the others.
+ * After FAILURE_THRESHOLD consecutive failed attempts the circuit opens for OPEN_MILLIS,
+ * then a single probe request goes through: its success closes the circuit, its failure opens it again.
+ * tryAcquire() is called by the flusher, onSuccess()/onFailure() by the sender threads.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_MILLIS = 30000;
+
+    private final AppenderMetrics metrics;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openUntil = 0;
+
+    CircuitBreaker(AppenderMetrics metrics) {
+        this(metrics, OPEN_MILLIS);
+    }
+
+    CircuitBreaker(AppenderMetrics metrics, long openMillis) {
+        this.metrics = metrics;
+        this.openMillis = openMillis;
+    }
+
+    /** True if a request can be sent; the first call after the open period lets the probe through */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    /** Millis until tryAcquire() can succeed: 0 now, Long.MAX_VALUE while the probe is in flight */
+    synchronized long waitMillis() {
+        switch (state) {
+            case OPEN:
+                return Math.max(0L, openUntil - System.currentTimeMillis());
+            case HALF_OPEN:
+                return Long.MAX_VALUE; // the end of the probe wakes the flusher
+            default:
+                return 0L;
+        }
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        if (state != State.CLOSED) {
+            metrics.circuitClosed(System.currentTimeMillis());
+        }
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= FAILURE_THRESHOLD)) {
+            long now = System.currentTimeMillis();
+            metrics.circuitOpened(now, state == State.CLOSED);
+            state = State.OPEN;
+            openUntil = now + openMillis;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * LogEntry ids: a random prefix drawn once per appender and a sequence, as 29 hex chars
+ * "<16 hex prefix>-<12 hex sequence>". Ids of one appender sort in the order they were assigned,
+ * the 64 random bits keep appenders (and restarts) apart.
+ * Much cheaper than UUID.randomUUID(), which goes through SecureRandom for every entry.
+ */
+public final class EntryIds {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int SEQUENCE_CHARS = 12;
+
+    //prefix and separator, copied at the start of every id
+    private final char[] prefix = new char[17];
+    private final AtomicLong sequence = new AtomicLong();
+
+    public EntryIds() {
+        this(new SecureRandom().nextLong());
+    }
+
+    EntryIds(long random) {
+        for (int i = 15; i >= 0; i--) {
+            prefix[i] = HEX[(int) (random & 0xF)];
+            random >>>= 4;
+        }
+        prefix[16] = '-';
+    }
+
+    /** Next sequence number, to be formatted when the entry is built */
+    public long next() {
+        return sequence.getAndIncrement();
+    }
+
+    public String format(long seq) {
+        char[] id = new char[prefix.length + SEQUENCE_CHARS];
+        System.arraycopy(prefix, 0, id, 0, prefix.length);
+        for (int i = id.length - 1; i >= prefix.length; i--) {
+            id[i] = HEX[(int) (seq & 0xF)];
+            seq >>>= 4;
+        }
+        return new String(id);
+    }
+
+    public String nextId() {
+        return format(next());
+    }
+}
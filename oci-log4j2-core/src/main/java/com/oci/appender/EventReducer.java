@@ -0,0 +1,252 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.spi.StandardLevel;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/*
+ * Reduction stage run by append() on the producer threads, before an event takes a ring slot:
+ *   dedupWindowMs  repeats of the same level, logger and message template within the window are collapsed:
+ *                  the first one goes through, the others are only counted and reported by one
+ *                  "[repeated N times]" entry when the window ends
+ *   rateLimits     "INFO=1000,DEBUG=100": events per second of a level, with a burst of one second.
+ *                  Each token bucket is kept as a theoretical arrival time (GCRA): one CAS per accepted event
+ * A repeat costs a cache lookup and a counter increment, so during a storm the pipeline only sees distinct messages.
+ */
+final class EventReducer {
+
+    //direct mapped: a new fingerprint replaces the one in its slot
+    private static final int CACHE_SIZE = 1024;
+    //repeat count of a window the sweep closed: increments on it keep it negative
+    private static final long SEALED = Long.MIN_VALUE;
+
+    //a collapsed window, handed to the flusher by sweep()
+    interface RepeatSink {
+        void repeated(Level level, String loggerName, String template, String logId, long repeats);
+    }
+
+    private static final class Fingerprint {
+        final Level level;
+        final String loggerName;
+        final String template;
+        final String logId;
+        final long windowEnd;
+        //repeats counted in the window, SEALED once the sweep took the count
+        private final AtomicLong repeats = new AtomicLong();
+
+        Fingerprint(Level level, String loggerName, String template, String logId, long windowEnd) {
+            this.level = level;
+            this.loggerName = loggerName;
+            this.template = template;
+            this.logId = logId;
+            this.windowEnd = windowEnd;
+        }
+
+        boolean matches(Level level, String loggerName, String template) {
+            return this.level == level && Objects.equals(this.loggerName, loggerName)
+                    && (this.template == template || this.template.equals(template));
+        }
+
+        /** @return false if the window is already closed: the repeat would not be reported */
+        boolean addRepeat() {
+            return repeats.getAndIncrement() >= 0;
+        }
+
+        /** Closes the window: later repeats are refused, the count returned is final */
+        long seal() {
+            return Math.max(0L, repeats.getAndSet(SEALED));
+        }
+
+        boolean hasRepeats() {
+            return repeats.get() > 0;
+        }
+    }
+
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private final long burstNanos = TimeUnit.SECONDS.toNanos(1);
+        private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+        RateLimiter(long perSecond) {
+            this.intervalNanos = Math.max(1L, TimeUnit.SECONDS.toNanos(1) / perSecond);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long next = Math.max(tat, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false; // bucket empty
+                }
+                if (theoreticalArrival.compareAndSet(tat, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private final long windowMillis;
+    private final AtomicReferenceArray<Fingerprint> cache;
+    //fingerprints pushed out of their slot while their window was open
+    private final ConcurrentLinkedQueue<Fingerprint> replaced = new ConcurrentLinkedQueue<>();
+    //by StandardLevel ordinal, null = no limit
+    private final RateLimiter[] limiters;
+    private final boolean limited;
+    //null = default logId, resolved once per window for the summary entry
+    private final Function<LogEvent, String> logIdResolver;
+    private final AppenderMetrics metrics;
+    //set by producers on a first repeat, cleared by the sweep
+    private volatile boolean repeatsPending = false;
+    //flusher only
+    private long nextSweep = 0;
+
+    private EventReducer(long windowMillis, RateLimiter[] limiters, boolean limited, Function<LogEvent, String> logIdResolver,
+                         AppenderMetrics metrics) {
+        this.windowMillis = windowMillis;
+        this.cache = windowMillis > 0 ? new AtomicReferenceArray<>(CACHE_SIZE) : null;
+        this.limiters = limiters;
+        this.limited = limited;
+        this.logIdResolver = logIdResolver;
+        this.metrics = metrics;
+    }
+
+    /** @return null if neither rateLimits nor dedupWindowMs is set */
+    static EventReducer create(String rateLimits, long dedupWindowMs, Function<LogEvent, String> logIdResolver, AppenderMetrics metrics) {
+        RateLimiter[] limiters = new RateLimiter[StandardLevel.values().length];
+        boolean limited = false;
+        if (rateLimits != null) {
+            for (String limit : rateLimits.split("[,;]")) {
+                if (limit.trim().isEmpty()) {
+                    continue;
+                }
+                int eq = limit.indexOf('=');
+                Level level = eq > 0 ? Level.toLevel(limit.substring(0, eq).trim(), null) : null;
+                if (level == null) {
+                    throw new IllegalArgumentException("Invalid rateLimits entry: " + limit + " (LEVEL=eventsPerSecond)");
+                }
+                long perSecond = Long.parseLong(limit.substring(eq + 1).trim());
+                if (perSecond <= 0) {
+                    throw new IllegalArgumentException("Invalid rateLimits entry: " + limit + " (eventsPerSecond must be > 0)");
+                }
+                limiters[level.getStandardLevel().ordinal()] = new RateLimiter(perSecond);
+                limited = true;
+            }
+        }
+        if (!limited && dedupWindowMs <= 0) {
+            return null;
+        }
+        return new EventReducer(Math.max(0L, dedupWindowMs), limiters, limited, logIdResolver, metrics);
+    }
+
+    /** @return false if the event is a collapsed repeat or over the rate limit of its level */
+    boolean accept(LogEvent event) {
+        Level level = event.getLevel();
+        if (cache != null) {
+            String template = event.getMessage().getFormat();
+            if (template != null && isRepeat(event, level, template)) {
+                metrics.collapsed.increment();
+                return false;
+            }
+        }
+        if (limited) {
+            RateLimiter limiter = limiters[level.getStandardLevel().ordinal()];
+            if (limiter != null && !limiter.tryAcquire(System.nanoTime())) {
+                metrics.rateLimited.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRepeat(LogEvent event, Level level, String template) {
+        String loggerName = event.getLoggerName();
+        int hash = 31 * (31 * Objects.hashCode(loggerName) + template.hashCode()) + level.intLevel();
+        int index = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        long now = event.getTimeMillis();
+        Fingerprint current = cache.get(index);
+        if (current != null && now < current.windowEnd && current.matches(level, loggerName, template) && current.addRepeat()) {
+            if (!repeatsPending) {
+                repeatsPending = true;
+            }
+            return true;
+        }
+        //first of a window (or a colliding message, or a repeat of a window the sweep just closed):
+        //it goes through and opens a new window
+        String logId = logIdResolver != null ? logIdResolver.apply(event) : null;
+        Fingerprint next = new Fingerprint(level, loggerName, template, logId, now + windowMillis);
+        if (cache.compareAndSet(index, current, next) && current != null) {
+            //evicted by a colliding message, or ended and not swept yet: its repeats are still reported
+            replaced.add(current);
+        }
+        return false;
+    }
+
+    /** Nanos until sweep() may have repeats to report, Long.MAX_VALUE if none */
+    long nextSweepDelay(long nowMillis) {
+        if (!repeatsPending && replaced.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        return nowMillis >= nextSweep ? 0L : TimeUnit.MILLISECONDS.toNanos(nextSweep - nowMillis);
+    }
+
+    /** Reports the repeats of the windows that ended (flusher thread), at most once per window */
+    void sweep(long nowMillis, RepeatSink sink) {
+        if (cache == null || nowMillis < nextSweep || (!repeatsPending && replaced.isEmpty())) {
+            return;
+        }
+        nextSweep = nowMillis + windowMillis;
+        repeatsPending = false;
+        Fingerprint fingerprint;
+        while ((fingerprint = replaced.poll()) != null) {
+            report(fingerprint, sink);
+        }
+        boolean open = false;
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            fingerprint = cache.get(i);
+            if (fingerprint == null) {
+                continue;
+            }
+            if (nowMillis >= fingerprint.windowEnd) {
+                if (cache.compareAndSet(i, fingerprint, null)) {
+                    report(fingerprint, sink);
+                }
+            } else if (fingerprint.hasRepeats()) {
+                open = true; // reported by a later sweep
+            }
+        }
+        if (open) {
+            repeatsPending = true;
+        }
+    }
+
+    //the fingerprint is out of the cache: sealing it counts every repeat exactly once, here or as a new window
+    private static void report(Fingerprint fingerprint, RepeatSink sink) {
+        long repeats = fingerprint.seal();
+        if (repeats > 0) {
+            sink.repeated(fingerprint.level, fingerprint.loggerName, fingerprint.template, fingerprint.logId, repeats);
+        }
+    }
+}
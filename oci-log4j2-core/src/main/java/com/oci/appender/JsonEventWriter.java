@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.util.StringBuilderWriter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.apache.logging.log4j.util.StringBuilders;
+import org.apache.logging.log4j.util.TriConsumer;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * format="json": the event is written as one JSON object straight into the slot, in a single pass
+ *   {"level":"INFO","logger":"...","thread":"...","marker":"...","message":"...","mdc":{...},"exception":"..."}
+ * so that OCI Logging Search can query the fields without parsing the text.
+ * Field names are constants and escaped logger names are cached: only the variable values are escaped.
+ */
+final class JsonEventWriter {
+
+    private static final int MAX_CACHED_LOGGERS = 4096;
+    //escaped logger names, logger names are few and repeat on every event
+    private static final ConcurrentHashMap<String, String> LOGGERS = new ConcurrentHashMap<>();
+
+    private static final TriConsumer<String, Object, StringBuilder> MDC_ENTRY = (key, value, sb) -> {
+        if (sb.charAt(sb.length() - 1) != '{') {
+            sb.append(',');
+        }
+        string(sb, key);
+        sb.append(':');
+        string(sb, String.valueOf(value));
+    };
+
+    private JsonEventWriter() {
+    }
+
+    static void write(LogEvent event, StringBuilder sb) {
+        sb.append("{\"level\":\"").append(event.getLevel().name());
+        sb.append("\",\"logger\":\"").append(escapedLogger(event.getLoggerName()));
+        sb.append("\",\"thread\":");
+        string(sb, event.getThreadName());
+        Marker marker = event.getMarker();
+        if (marker != null) {
+            sb.append(",\"marker\":");
+            string(sb, marker.getName());
+        }
+        sb.append(",\"message\":\"");
+        int start = sb.length();
+        Message message = event.getMessage();
+        if (message instanceof StringBuilderFormattable) {
+            ((StringBuilderFormattable) message).formatTo(sb);
+        } else {
+            sb.append(message.getFormattedMessage());
+        }
+        StringBuilders.escapeJson(sb, start);
+        sb.append('"');
+        if (!event.getContextData().isEmpty()) {
+            sb.append(",\"mdc\":{");
+            event.getContextData().forEach(MDC_ENTRY, sb);
+            sb.append('}');
+        }
+        Throwable thrown = event.getThrown();
+        if (thrown != null) {
+            sb.append(",\"exception\":\"");
+            start = sb.length();
+            thrown.printStackTrace(new PrintWriter(new StringBuilderWriter(sb)));
+            StringBuilders.escapeJson(sb, start);
+            sb.append('"');
+        }
+        sb.append('}');
+    }
+
+    private static String escapedLogger(String loggerName) {
+        if (loggerName == null) {
+            return "";
+        }
+        String escaped = LOGGERS.get(loggerName);
+        if (escaped == null) {
+            StringBuilder sb = new StringBuilder(loggerName);
+            StringBuilders.escapeJson(sb, 0);
+            escaped = sb.toString();
+            if (LOGGERS.size() < MAX_CACHED_LOGGERS) {
+                LOGGERS.put(loggerName, escaped);
+            }
+        }
+        return escaped;
+    }
+
+    //"value" escaped, null as JSON null
+    private static void string(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        int start = sb.length();
+        sb.append(value);
+        StringBuilders.escapeJson(sb, start);
+        sb.append('"');
+    }
+}
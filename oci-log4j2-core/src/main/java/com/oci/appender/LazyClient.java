@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import com.oci.client.OciLoggingClient;
+import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
+import com.oracle.bmc.loggingingestion.responses.PutLogsResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ * OciLoggingClient built on a background thread: config file parsing, instance principal
+ * metadata calls and LoggingClient construction no longer run in the log4j2 configuration.
+ * A failed build is retried with backoff until it succeeds or the client is closed.
+ * The appender does not send before isReady(), putLogs() fails until then.
+ */
+final class LazyClient implements OciLoggingClient {
+
+    private final String name;
+    private final Supplier<OciLoggingClient> factory;
+    private final CompletableFuture<OciLoggingClient> ready = new CompletableFuture<>();
+    private final Thread initializer;
+    private volatile OciLoggingClient client;
+    private boolean closed = false;
+
+    LazyClient(String name, Supplier<OciLoggingClient> factory) {
+        this.name = name;
+        this.factory = factory;
+        this.initializer = new Thread(this::initialize, "oci-log4j2-init-" + name);
+        initializer.setDaemon(true);
+        initializer.start();
+    }
+
+    private void initialize() {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                OciLoggingClient built = factory.get();
+                synchronized (this) {
+                    if (closed) {
+                        built.close(); // closed while it was being built
+                        return;
+                    }
+                    client = built;
+                }
+                ready.complete(built);
+                return;
+            } catch (RuntimeException e) {
+                long backoff = RetryPolicy.backoffMillis(attempt);
+                System.err.println("[OCI-APPENDER-ERROR] OCI client " + name + " initialization failed: " + e
+                                   + (e.getCause() != null ? " (" + e.getCause() + ")" : "") + ", retry in " + backoff + " ms");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return; // closed
+                }
+            }
+        }
+    }
+
+    boolean isReady() {
+        return client != null;
+    }
+
+    /** Runs action on the initializer thread once the client is ready (at once if it already is) */
+    void onReady(Runnable action) {
+        ready.thenRun(action);
+    }
+
+    /** @return true if the client is ready, waiting at most timeout for it */
+    boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            ready.get(timeout, unit);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public PutLogsResponse putLogs(PutLogsRequest request) {
+        OciLoggingClient current = client;
+        if (current == null) {
+            throw new IllegalStateException("OCI client " + name + " not initialized yet");
+        }
+        return current.putLogs(request);
+    }
+
+    @Override
+    public void warmUp(String logId, int connections) {
+        ready.join().warmUp(logId, connections);
+    }
+
+    @Override
+    public void close() {
+        OciLoggingClient current;
+        synchronized (this) {
+            closed = true;
+            current = client;
+        }
+        initializer.interrupt();
+        ready.completeExceptionally(new IllegalStateException("OCI client " + name + " closed"));
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Sends PutLogs requests on a pool of sender threads with at most maxInFlightRequests
+ * requests outstanding (retries included).
+ * A failed attempt is rescheduled on a timer after a jittered backoff: no thread sleeps while waiting.
+ * Errors that would fail again (see RetryPolicy) are given up at once.
+ * With preserveOrder every delivery is chained on a lane chosen by its key, so requests
+ * of the same key are sent one after the other, retries included.
+ * The flusher thread is event driven: it parks until the earliest deadline of its sources,
+ * is woken by producers when a full batch is ready or when an event is due before that
+ * deadline, and loops while backlog exists.
+ * Appenders with the same client settings share one dispatcher (see SharedDispatchers).
+ * With virtualThreads (JDK 21+) every request runs on its own virtual thread, the semaphore
+ * still caps them to maxInFlightRequests; older JDKs fall back to the platform pool.
+ */
+final class LogDispatcher {
+
+    //one request: send() is called once per attempt
+    interface Delivery {
+        void send() throws Exception;
+        void onSuccess();
+        void onGiveUp(Exception lastError);
+        /** A failed attempt will be tried again after the backoff */
+        default void onRetry(Exception error) {
+        }
+        /** True once its appender stopped waiting for it: the next attempt gives up instead of sending */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    //queue drained by the flusher thread
+    interface Source {
+        /** Drains and dispatches what is ready */
+        void flush();
+        /** Nanos until flush() has something to send: 0 now, Long.MAX_VALUE nothing pending */
+        long nextFlushDelay();
+    }
+
+    private static final int RUNNING = 0;
+    //parked with nothing pending: any new event wakes the flusher
+    private static final int IDLE = 1;
+    //parked until a deadline: a full batch, or an event due before that deadline, wakes the flusher
+    private static final int LINGERING = 2;
+
+    private final int maxInFlightRequests;
+    private final Semaphore inFlight;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService retryTimer;
+    //retries waiting for their backoff: close() and cancel() run them at once so they give up
+    private final Set<Retry> pendingRetries = ConcurrentHashMap.newKeySet();
+    //tail of every ordered lane, updated under its own lock (flusher and stopping appenders)
+    private final CompletableFuture<?>[] lanes;
+
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    //held by the flusher while it works on a source: unregister() waits for it
+    private final Object sourceLock = new Object();
+    private final AtomicInteger parkState = new AtomicInteger(RUNNING);
+    //nanoTime the flusher parks until while LINGERING: the earliest deadline of any source (linger, dedup
+    //sweep, circuit breaker), not necessarily a linger deadline. Written before parkState
+    private volatile long parkDeadline;
+    private final Thread flusher;
+    private volatile boolean flushing = true;
+    //time the flusher spent out of park, written by the flusher only
+    private final long startNanos = System.nanoTime();
+    private volatile long busyNanos = 0;
+    //start of the current busy span, 0 while parked
+    private volatile long awakeSince = 0;
+
+    LogDispatcher(String name, int maxInFlightRequests, boolean preserveOrder) {
+        this(name, maxInFlightRequests, preserveOrder, false);
+    }
+
+    LogDispatcher(String name, int maxInFlightRequests, boolean preserveOrder, boolean virtualThreads) {
+        this.maxInFlightRequests = Math.max(1, maxInFlightRequests);
+        this.inFlight = new Semaphore(this.maxInFlightRequests);
+        this.senders = newSenders("oci-log4j2-sender-" + name, this.maxInFlightRequests, virtualThreads);
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(daemonThreads("oci-log4j2-retry-" + name));
+        if (preserveOrder) {
+            lanes = new CompletableFuture<?>[this.maxInFlightRequests];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = CompletableFuture.completedFuture(null);
+            }
+        } else {
+            lanes = null;
+        }
+        this.flusher = new Thread(this::runFlusher, "oci-log4j2-flusher-" + name);
+        this.flusher.start();
+    }
+
+    void register(Source source) {
+        sources.add(source);
+        wakeUp(true);
+    }
+
+    /** Removes a source: when this returns the flusher is not (and will not be) draining it */
+    void unregister(Source source) {
+        sources.remove(source);
+        synchronized (sourceLock) {
+            //a flush of source in progress has completed
+        }
+    }
+
+    boolean hasSources() {
+        return !sources.isEmpty();
+    }
+
+    private void runFlusher() {
+        awakeSince = System.nanoTime();
+        while (flushing) {
+            long wait = Long.MAX_VALUE;
+            for (Source source : sources) {
+                synchronized (sourceLock) {
+                    if (!sources.contains(source)) {
+                        continue; // unregistered during this cycle
+                    }
+                    if (source.nextFlushDelay() <= 0) {
+                        source.flush();
+                    }
+                    wait = Math.min(wait, source.nextFlushDelay());
+                }
+            }
+            if (wait <= 0) {
+                continue; // backlog: loop without waiting
+            }
+            if (wait != Long.MAX_VALUE) {
+                parkDeadline = System.nanoTime() + wait;
+            }
+            parkState.set(wait == Long.MAX_VALUE ? IDLE : LINGERING);
+            //an event published before the state was visible must not be missed
+            long recheck = Long.MAX_VALUE;
+            for (Source source : sources) {
+                synchronized (sourceLock) {
+                    if (sources.contains(source)) {
+                        recheck = Math.min(recheck, source.nextFlushDelay());
+                    }
+                }
+            }
+            if (recheck < wait || !flushing) {
+                parkState.set(RUNNING);
+                continue;
+            }
+            busyNanos += System.nanoTime() - awakeSince;
+            awakeSince = 0;
+            if (wait == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, wait);
+            }
+            awakeSince = System.nanoTime();
+            parkState.set(RUNNING);
+        }
+    }
+
+    /** Share of the time the flusher thread was not parked, since the start */
+    double flusherUtilization() {
+        long now = System.nanoTime();
+        long since = awakeSince;
+        long busy = busyNanos + (since != 0 ? now - since : 0L);
+        long elapsed = now - startNanos;
+        return elapsed <= 0 ? 0.0 : Math.min(1.0, (double) busy / elapsed);
+    }
+
+    /** Cheap check for producers: true if the flusher may need a wakeUp */
+    boolean isParked() {
+        return parkState.get() != RUNNING;
+    }
+
+    /**
+     * Wakes the parked flusher for a new event: always when idle, while lingering if a batch is ready
+     * or if the flusher would wake up later than the event is due (lingerNanos from now)
+     */
+    void wakeUp(boolean batchReady, long lingerNanos) {
+        if (!batchReady && parkState.get() == LINGERING) {
+            batchReady = parkDeadline - System.nanoTime() > lingerNanos;
+        }
+        wakeUp(batchReady);
+    }
+
+    /** Wakes the parked flusher: always when idle, while lingering only if a batch is ready */
+    void wakeUp(boolean batchReady) {
+        int state = parkState.get();
+        if (state == IDLE || (state == LINGERING && batchReady)) {
+            if (parkState.compareAndSet(state, RUNNING)) {
+                LockSupport.unpark(flusher);
+            }
+        }
+    }
+
+    //the code is built for 17: the virtual thread api is looked up by reflection
+    private static ExecutorService newSenders(String prefix, int threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+                ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("[OCI-APPENDER-WARN] virtual threads not available on java "+System.getProperty("java.version")+", using "+threads+" sender threads");
+            }
+        }
+        return Executors.newFixedThreadPool(threads, daemonThreads(prefix));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    int maxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    boolean hasFreeSlot() {
+        return inFlight.availablePermits() > 0;
+    }
+
+    /** Reserves room for one request, false if maxInFlightRequests are already outstanding */
+    boolean tryAcquire() {
+        return inFlight.tryAcquire();
+    }
+
+    /** Releases a reservation that was not used */
+    void release() {
+        inFlight.release();
+    }
+
+    /** Lane of a key when order is preserved, -1 otherwise */
+    int lane(Object key) {
+        if (lanes == null) {
+            return -1;
+        }
+        return Math.floorMod(key == null ? 0 : key.hashCode(), lanes.length);
+    }
+
+    /** Sends a delivery after a successful tryAcquire(), chained after the previous one of the same lane */
+    void submit(Integer lane, Delivery delivery) {
+        if (lane == null || lane < 0) {
+            start(delivery);
+            return;
+        }
+        synchronized (lanes) {
+            lanes[lane] = lanes[lane].thenCompose(ignored -> start(delivery));
+        }
+    }
+
+    private CompletableFuture<Void> start(Delivery delivery) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        execute(() -> attempt(delivery, 0, done), delivery, done);
+        return done;
+    }
+
+    private void attempt(Delivery delivery, int attempt, CompletableFuture<Void> done) {
+        if (delivery.isCancelled()) {
+            giveUp(delivery, new CancellationException("appender stopped"), done);
+            return;
+        }
+        try {
+            delivery.send();
+        } catch (Exception e) {
+            if (attempt + 1 < RetryPolicy.MAX_ATTEMPTS && RetryPolicy.isRetryable(e) && !retryTimer.isShutdown()
+                    && !delivery.isCancelled()) {
+                delivery.onRetry(e);
+                long backoff = RetryPolicy.backoffMillis(attempt);
+                Retry retry = new Retry(delivery, () -> attempt(delivery, attempt + 1, done), done);
+                pendingRetries.add(retry);
+                try {
+                    retryTimer.schedule(retry, backoff, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException stopped) {
+                    //dispatcher closed while waiting: give up below
+                    pendingRetries.remove(retry);
+                }
+            }
+            giveUp(delivery, e, done);
+            return;
+        }
+        try {
+            delivery.onSuccess();
+        } finally {
+            finish(done);
+        }
+    }
+
+    //next attempt of a delivery, scheduled after its backoff
+    private final class Retry implements Runnable {
+        private final Delivery delivery;
+        private final Runnable attempt;
+        private final CompletableFuture<Void> done;
+
+        Retry(Delivery delivery, Runnable attempt, CompletableFuture<Void> done) {
+            this.delivery = delivery;
+            this.attempt = attempt;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            if (pendingRetries.remove(this)) {
+                execute(attempt, delivery, done);
+            }
+        }
+    }
+
+    private void execute(Runnable task, Delivery delivery, CompletableFuture<Void> done) {
+        try {
+            senders.execute(task);
+        } catch (RejectedExecutionException e) {
+            giveUp(delivery, e, done);
+        }
+    }
+
+    private void giveUp(Delivery delivery, Exception e, CompletableFuture<Void> done) {
+        try {
+            delivery.onGiveUp(e);
+        } finally {
+            finish(done);
+        }
+    }
+
+    private void finish(CompletableFuture<Void> done) {
+        inFlight.release();
+        done.complete(null);
+        //a slot is free again: backlog waiting for it can go
+        wakeUp(true);
+    }
+
+    /** Waits until no request is outstanding */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!inFlight.tryAcquire(maxInFlightRequests, timeout, unit)) {
+            return false;
+        }
+        inFlight.release(maxInFlightRequests);
+        return true;
+    }
+
+    /** A cancelled delivery waiting for its backoff gives up now instead of when the backoff ends */
+    void cancel(Delivery delivery) {
+        for (Retry retry : pendingRetries) {
+            if (retry.delivery == delivery) {
+                retry.run();
+            }
+        }
+    }
+
+    void close() {
+        flushing = false;
+        LockSupport.unpark(flusher);
+        senders.shutdown();
+        retryTimer.shutdownNow();
+        //pending retries are rejected by the closed pool and handed back with onGiveUp
+        for (Retry retry : pendingRetries) {
+            retry.run();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.LogEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Resolves the target log of an event from routeBy:
+ *   mdc:<key>  value of the ThreadContext key (a log OCID in the MDC is used as is)
+ *   logger     longest logger name prefix in routes (com.acme.audit matches com.acme.audit.Login)
+ *   marker     marker name, or the first route the marker is an instance of
+ * routes: "value=ocid1.log...,value2=ocid1.log..." ; null = default logId of the appender.
+ * Resolutions are cached by value, the routes are evaluated once per distinct value.
+ */
+final class LogIdRouter {
+
+    private enum By { MDC, LOGGER, MARKER }
+
+    private static final String OCID_PREFIX = "ocid1.log.";
+    //cached "no route": the default logId
+    private static final String NO_ROUTE = "";
+    private static final int MAX_CACHED = 10_000;
+
+    private final By by;
+    private final String mdcKey;
+    private final Map<String, String> routes;
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+    private LogIdRouter(By by, String mdcKey, Map<String, String> routes) {
+        this.by = by;
+        this.mdcKey = mdcKey;
+        this.routes = routes;
+    }
+
+    /** @return null if routeBy is not set: every event goes to the default logId */
+    static LogIdRouter create(String routeBy, String routes) {
+        if (routeBy == null || routeBy.trim().isEmpty()) {
+            return null;
+        }
+        String spec = routeBy.trim();
+        Map<String, String> table = parseRoutes(routes);
+        if (spec.regionMatches(true, 0, "mdc:", 0, 4) && spec.length() > 4) {
+            return new LogIdRouter(By.MDC, spec.substring(4), table);
+        }
+        if ("logger".equalsIgnoreCase(spec)) {
+            return new LogIdRouter(By.LOGGER, null, table);
+        }
+        if ("marker".equalsIgnoreCase(spec)) {
+            return new LogIdRouter(By.MARKER, null, table);
+        }
+        throw new IllegalArgumentException("Invalid routeBy: " + routeBy + " (mdc:<key>, logger or marker)");
+    }
+
+    private static Map<String, String> parseRoutes(String routes) {
+        Map<String, String> table = new LinkedHashMap<>();
+        if (routes == null) {
+            return table;
+        }
+        for (String route : routes.split("[,;]")) {
+            int eq = route.indexOf('=');
+            if (eq <= 0 || eq == route.length() - 1) {
+                if (!route.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Invalid route: " + route + " (value=logId)");
+                }
+                continue;
+            }
+            table.put(route.substring(0, eq).trim(), route.substring(eq + 1).trim());
+        }
+        return table;
+    }
+
+    /** Target log of the event, null for the default logId */
+    String resolve(LogEvent event) {
+        String value;
+        Marker marker = null;
+        switch (by) {
+            case MDC:
+                value = event.getContextData().getValue(mdcKey);
+                break;
+            case LOGGER:
+                value = event.getLoggerName();
+                break;
+            default:
+                marker = event.getMarker();
+                value = marker == null ? null : marker.getName();
+        }
+        if (value == null) {
+            return null;
+        }
+        String cached = cache.get(value);
+        if (cached == null) {
+            cached = lookup(value, marker);
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear(); // unbounded values (e.g. request ids in the mdc): start over
+            }
+            cache.put(value, cached);
+        }
+        return cached == NO_ROUTE ? null : cached;
+    }
+
+    private String lookup(String value, Marker marker) {
+        String logId = routes.get(value);
+        if (logId != null) {
+            return logId;
+        }
+        switch (by) {
+            case MDC:
+                return value.startsWith(OCID_PREFIX) ? value : NO_ROUTE;
+            case LOGGER:
+                for (int dot = value.lastIndexOf('.'); dot > 0; dot = value.lastIndexOf('.', dot - 1)) {
+                    logId = routes.get(value.substring(0, dot));
+                    if (logId != null) {
+                        return logId;
+                    }
+                }
+                return NO_ROUTE;
+            default:
+                for (Map.Entry<String, String> route : routes.entrySet()) {
+                    if (marker.isInstanceOf(route.getKey())) {
+                        return route.getValue();
+                    }
+                }
+                return NO_ROUTE;
+        }
+    }
+}
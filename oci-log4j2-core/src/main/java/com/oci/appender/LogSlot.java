@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.util.StringBuilders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/*
+ * Reusable ring buffer slot: written by one producer between claim and publish,
+ * read by the flusher between peek and consume.
+ * The layout writes straight into the slot (chars or encoded bytes), the String
+ * sent to oci is materialized only by the flusher.
+ */
+final class LogSlot implements ByteBufferDestination {
+
+    private static final int INITIAL_SIZE = 128;
+    //buffers grown by a huge message are trimmed back by the flusher
+    private static final int MAX_RETAINED_SIZE = 8 * 1024;
+
+    final StringBuilder text = new StringBuilder(INITIAL_SIZE);
+    private ByteBuffer bytes;
+    //not null when the layout encoded the event into bytes instead of text
+    private Charset charset;
+    Level level;
+    String loggerName;
+    long timeMillis;
+    //target log resolved by the router, null = default logId
+    String logId;
+    //false if the producer failed after claiming the slot: the flusher skips it
+    boolean valid;
+
+    void start(Level level, String loggerName, long timeMillis) {
+        this.text.setLength(0);
+        this.charset = null;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.timeMillis = timeMillis;
+        this.logId = null;
+        this.valid = false;
+    }
+
+    /** Prepares the byte buffer for Layout.encode(event, slot) */
+    void startBytes(Charset charset) {
+        this.charset = charset;
+        if (bytes == null) {
+            bytes = ByteBuffer.allocate(INITIAL_SIZE * 2);
+        }
+        bytes.clear();
+    }
+
+    /** Flusher only: size of the message in the JSON payload (see PayloadSize), exact for text and UTF-8 layouts */
+    int encodedLength() {
+        if (charset != null) {
+            return PayloadSize.jsonLength(bytes.array(), bytes.position());
+        }
+        return PayloadSize.jsonLength(text);
+    }
+
+    /** Flusher only: builds the message String */
+    String materialize() {
+        if (charset != null) {
+            return new String(bytes.array(), 0, bytes.position(), charset);
+        }
+        return text.toString();
+    }
+
+    /** Flusher only: releases references and oversized buffers */
+    void clear() {
+        valid = false;
+        level = null;
+        loggerName = null;
+        StringBuilders.trimToMaxSize(text, MAX_RETAINED_SIZE);
+        if (bytes != null && bytes.capacity() > MAX_RETAINED_SIZE) {
+            bytes = null;
+        }
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buf) {
+        //called by the layout when the buffer is full: grow instead of flushing
+        grow(buf.capacity());
+        return bytes;
+    }
+
+    @Override
+    public void writeBytes(ByteBuffer data) {
+        if (data.remaining() > bytes.remaining()) {
+            grow(data.remaining());
+        }
+        bytes.put(data);
+    }
+
+    @Override
+    public void writeBytes(byte[] data, int offset, int length) {
+        if (length > bytes.remaining()) {
+            grow(length);
+        }
+        bytes.put(data, offset, length);
+    }
+
+    private void grow(int needed) {
+        int capacity = Math.max(bytes.capacity() * 2, bytes.position() + needed);
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        bytes.flip();
+        bigger.put(bytes);
+        bytes = bigger;
+    }
+}
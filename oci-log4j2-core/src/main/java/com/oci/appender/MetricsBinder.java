@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+/*
+ * Hook to publish the appender metrics to a registry (Micrometer, Dropwizard...), e.g. with Micrometer
+ *   Gauge.builder("oci.appender.queue.depth", metrics, AppenderMetrics::getQueueDepth).tag("appender", name).register(registry);
+ * Loaded by class name from the metricsBinder attribute, with a public no-args constructor.
+ */
+public interface MetricsBinder {
+
+    /** Called when the appender starts */
+    void bind(String appenderName, AppenderMetrics metrics);
+
+    /** Called when the appender stops */
+    default void unbind(String appenderName) {
+    }
+}
@@ -16,16 +16,21 @@
 
 package com.oci.appender;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.*;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
 import org.apache.logging.log4j.core.config.Property;
 import org.apache.logging.log4j.core.config.plugins.*;
 import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.message.SimpleMessage;
 import org.glassfish.jersey.client.JerseyClient;
 
+import com.oci.client.FallbackSink;
 import com.oci.client.OciLoggingClient;
 import com.oci.client.OciLoggingClientImpl;
+import com.oci.client.TransportConfig;
+import com.oci.client.PayloadCodec;
 import com.oracle.bmc.ClientRuntime;
 import com.oracle.bmc.ConfigFileReader;
 import com.oracle.bmc.auth.AbstractAuthenticationDetailsProvider;
@@ -37,29 +42,80 @@ import com.oracle.bmc.loggingingestion.model.*;
 import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
 import com.oracle.bmc.util.VisibleForTesting;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 /*
-<OciAsyncAppender name="OciAppender" logId="ocid1.log.oc1..aaaa" configFile="/Users/luca/.oci/config" profile="DEFAULT" batchSize="50" flushIntervalMs="2000"> <PatternLayout pattern="%d [%t] %-5level %logger - %msg%n"/> </OciAsyncAppender>
+<OciAsyncAppender name="OciAppender" logId="ocid1.log.oc1..aaaa" configFile="/Users/luca/.oci/config" profile="DEFAULT" batchSize="50" lingerMs="2000"> <PatternLayout pattern="%d [%t] %-5level %logger - %msg%n"/> </OciAsyncAppender>
 */
 
 @Plugin(name = "OciAsyncAppender", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE)
 public class OciAsyncAppender extends AbstractAppender {
 
+    //how the drained window is split into LogEntryBatch objects of a single PutLogs request
+    public enum BatchKey { 
+        LEVEL, //one batch per level (type=level)
+        LOGGER //one batch per level and logger (type=level, subject=logger name)
+    }
+
+    //content of LogEntry.data
+    public enum Format { 
+        TEXT, //the event rendered by the layout
+        JSON //level, logger, thread, marker, message, mdc and exception as one JSON object (the layout is not used)
+    }
+
+    //what happens to the events when the OCI client is not ready initTimeoutMs after the start
+    public enum InitFallback {
+        STDERR, //printed on stderr until the client is ready
+        DROP //dropped (and counted) until the client is ready
+    }
+
     class LogMessage { 
         final String message; 
         final String level; // "INFO", "ERROR", etc. 
-        final Instant timestamp; // "INFO", "ERROR", etc. 
-        LogMessage(String message, String level, Instant timestamp) { 
+        final String loggerName;
+        final long timestamp; // epoch millis
+        final int bytes; // utf-8 size of message in the json payload (escapes included)
+        final String logId; // null = default logId
+        final long sequence; // LogEntry id (see EntryIds): assigned when queued for sending, the same for every attempt and requeue
+        final String id; // LogEntry id kept by the spill log, null = formatted from sequence
+        SpillPoll spillPoll; // spill log poll it was replayed from, null = not replayed
+        LogMessage(String message, String level, String loggerName, long timestamp) { 
+            this(message, level, loggerName, timestamp, null);
+        }
+        LogMessage(String message, String level, String loggerName, long timestamp, String logId) { 
+            this(message, level, loggerName, timestamp, PayloadSize.jsonLength(message), logId);
+        }
+        LogMessage(String message, String level, String loggerName, long timestamp, int bytes, String logId) { 
+            this(message, level, loggerName, timestamp, bytes, logId, null);
+        }
+        LogMessage(String message, String level, String loggerName, long timestamp, int bytes, String logId, String id) { 
             this.message = message; 
             this.level = level; 
+            this.loggerName = loggerName;
             this.timestamp = timestamp; 
+            this.bytes = bytes;
+            this.logId = logId;
+            this.sequence = id == null ? entryIds.next() : -1L;
+            this.id = id;
+        }
+        String id() {
+            return id != null ? id : entryIds.format(sequence);
         }
         @Override
         public String toString() {
@@ -72,44 +128,126 @@ public class OciAsyncAppender extends AbstractAppender {
         }
     }
 
+    //messages replayed by one spill log poll: the poll is committed once the last of them is settled,
+    //whatever request, target or lane each one went to
+    private static final class SpillPoll {
+        final long position;
+        final AtomicInteger outstanding;
+        SpillPoll(long position, int messages) {
+            this.position = position;
+            this.outstanding = new AtomicInteger(messages);
+        }
+    }
+
     private final boolean isTest; 
     private OciLoggingClient testClient=null;
 
     private final OciLoggingClient client;
     private final String logId;
+    //per event target log (mdc, logger prefix, marker), null = every event to logId
+    private final LogIdRouter router;
+    private final Format format;
     private final boolean sysoutTrace;
 
- //   private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(5000);
-    private final BlockingDeque<LogMessage> queue = new LinkedBlockingDeque<>(5000);
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private static final int QUEUE_CAPACITY = 5000;
+    private static final long DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRY_BYTES = 1000 * 1000;
+    private static final long DEFAULT_SPILL_MAX_BYTES = 256L * 1024 * 1024;
+    private static final long DEFAULT_BLOCK_TIMEOUT_MS = 100;
+    private static final int DEFAULT_SAMPLE_RATE = 10;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MS = 20000;
+    private static final long DEFAULT_INIT_TIMEOUT_MS = 30000;
+    //metrics registered under each mbean name by the appenders of this class loader
+    private static final Map<ObjectName, AppenderMetrics> MBEANS = new HashMap<>();
+
+    //lock free mpsc ring of reusable slots, filled by append()
+    private final RingBuffer<LogSlot> queue = new RingBuffer<>(QUEUE_CAPACITY, LogSlot::new);
+    //ids of the LogEntry objects: random prefix of this appender + sequence
+    private final EntryIds entryIds = new EntryIds();
+    //priority lane for messages that must be sent again, drained before the ring
+    private final ConcurrentLinkedDeque<LogMessage> retryLane = new ConcurrentLinkedDeque<>();
+    //optional on-disk overflow: ring full, requests given up, shutdown leftovers. Replayed by the flusher
+    private final SpillLog spill;
+    //producer side buffer used to render events that overflow into the spill log
+    private final ThreadLocal<LogSlot> overflowSlot = ThreadLocal.withInitial(LogSlot::new);
+
+    //what append() does when the ring is full
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final int sampleRate;
+    //stop() budget when log4j passes no timeout: pending events are sent until then, the rest is spilled
+    private final long shutdownTimeoutMs;
+    //drops already reported with a summary entry (flusher only)
+    private long reportedDrops = 0;
+    //rateLimits / dedupWindowMs applied before an event is queued, null = every event is queued
+    private final EventReducer reducer;
+    //rate limited events already reported with a summary entry (flusher only)
+    private long reportedRateLimited = 0;
+    //DROP_OLDEST: slots the flusher has to free
+    private final AtomicInteger evictRequests = new AtomicInteger();
+    private final AtomicLong sampleCounter = new AtomicLong();
 
     private final int batchSize;
     private final long flushIntervalMs;
-    //OPEN => Circuit Break the circuit closes again after 30 sec
-    private enum State { CLOSED, OPEN, HALF_OPEN } 
-    //Initial state of circuit breaker
-    private State state = State.CLOSED; 
-    private int failures = 0; 
-    private long openUntil = 0; 
-
-    private boolean canSend() { 
-        long now = System.currentTimeMillis(); 
-        if (state == State.OPEN && now >= openUntil) { 
-            state = State.HALF_OPEN; 
-        } 
-        return state != State.OPEN; 
-    } 
-    private void onSuccess() { 
-        failures = 0; 
-        state = State.CLOSED; 
-    } 
-
-    private void onFailure() { 
-        failures++; 
-        if (failures >= 5) { 
-            state = State.OPEN; 
-            openUntil = System.currentTimeMillis() + 30000; // break circuit for 30 seconds 
-        } 
+    //max time a partial batch waits for more events (like kafka linger.ms), a full batch goes at once
+    private final long lingerMs;
+    private final long lingerNanos;
+    private final BatchKey batchKey;
+    //estimated PutLogs payload limits: requests are filled up to maxBatchBytes, bigger entries are split
+    private final long maxBatchBytes;
+    private final int maxEntryBytes;
+    private final boolean preserveOrder;
+    //sender pool: at most maxInFlightRequests PutLogs requests outstanding
+    private final LogDispatcher dispatcher;
+    //shared client and dispatcher, null for the test constructor (private dispatcher)
+    private final SharedDispatchers.Lease lease;
+    //requests of this appender submitted and not yet completed (the dispatcher may serve other appenders)
+    private final Set<PutLogsDelivery> pendingDeliveries = ConcurrentHashMap.newKeySet();
+    //counters and gauges, published on jmx and to the metricsBinder
+    private final AppenderMetrics metrics;
+    private final boolean jmx;
+    //opt-in: start() opens the connections of the shared client and fetches the auth token in background
+    private final boolean warmUp;
+    //the client is built in background: events are buffered until it is ready or until initDeadline,
+    //then the backlog goes to the spill log (replayed once the client is ready) or to initFallback
+    private final long initDeadline;
+    private final InitFallback initFallback;
+    //where requests go without a client, and while the circuit is open with fallbackOnOpenCircuit
+    private final FallbackSink fallbackSink;
+    private final boolean fallbackOnOpenCircuit;
+    private final MetricsBinder metricsBinder;
+
+    //target log with its own circuit breaker: while the circuit is open its messages wait here,
+    //off the retry lane, so the other target logs keep flowing
+    private static final class Target {
+        final CircuitBreaker breaker;
+        final ConcurrentLinkedDeque<LogMessage> parked = new ConcurrentLinkedDeque<>();
+        Target(AppenderMetrics metrics) {
+            this.breaker = new CircuitBreaker(metrics);
+        }
+    }
+    private final ConcurrentHashMap<String, Target> targets = new ConcurrentHashMap<>();
+    private final Target defaultTarget;
+    //messages in all the parked lists
+    private final AtomicInteger parkedMessages = new AtomicInteger();
+
+    private Target target(String targetLogId) {
+        if (targetLogId == null || targetLogId.equals(logId)) {
+            return defaultTarget;
+        }
+        return targets.computeIfAbsent(targetLogId, id -> new Target(metrics));
+    }
+
+    //the worst state of the target logs
+    private String circuitState() {
+        CircuitBreaker.State worst = defaultTarget.breaker.state();
+        for (Target target : targets.values()) {
+            CircuitBreaker.State state = target.breaker.state();
+            if (state == CircuitBreaker.State.OPEN || worst == CircuitBreaker.State.CLOSED) {
+                worst = state;
+            }
+        }
+        return worst.name();
     }
 
     //Test Constructor dont' send to oci but prints only in stdout
@@ -117,51 +255,196 @@ public class OciAsyncAppender extends AbstractAppender {
     protected OciAsyncAppender(String name, Filter filter, Layout<? extends Serializable> layout,
                                boolean ignoreExceptions,
                                int batchSize, long flushIntervalMs) {
+        this(name, filter, layout, ignoreExceptions, batchSize, flushIntervalMs, true);
+    }
+
+    //Test Constructor without the stdout trace (benchmarks)
+    @VisibleForTesting
+    protected OciAsyncAppender(String name, Filter filter, Layout<? extends Serializable> layout,
+                               boolean ignoreExceptions,
+                               int batchSize, long flushIntervalMs, boolean sysoutTrace) {
+        this(name, filter, layout, ignoreExceptions, batchSize, flushIntervalMs, sysoutTrace, OverflowPolicy.DROP_NEWEST, null);
+    }
+
+    //Test Constructor with overflow policy and spill log
+    @VisibleForTesting
+    protected OciAsyncAppender(String name, Filter filter, Layout<? extends Serializable> layout,
+                               boolean ignoreExceptions,
+                               int batchSize, long flushIntervalMs, boolean sysoutTrace,
+                               OverflowPolicy overflowPolicy, SpillLog spill) {
         super(name, filter, layout, ignoreExceptions,Property.EMPTY_ARRAY);
-        sysoutTrace=true;
+        this.sysoutTrace=sysoutTrace;
         sysoutTrace("Test Appender constructor called");
         this.client = null;
         this.logId = null;
         this.batchSize = batchSize;
         this.flushIntervalMs = flushIntervalMs;
+        this.lingerMs = flushIntervalMs;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.batchKey = BatchKey.LEVEL;
+        this.maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        this.maxEntryBytes = DEFAULT_MAX_ENTRY_BYTES;
+        this.preserveOrder = false;
+        this.dispatcher = new LogDispatcher(name, 1, false);
+        this.lease = null;
+        this.router = null;
+        this.format = Format.TEXT;
+        this.spill = spill;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BLOCK_TIMEOUT_MS);
+        this.sampleRate = DEFAULT_SAMPLE_RATE;
+        this.shutdownTimeoutMs = DEFAULT_SHUTDOWN_TIMEOUT_MS;
+        this.metrics = newMetrics();
+        this.reducer = null;
+        this.defaultTarget = new Target(metrics);
+        this.jmx = false;
+        this.warmUp = false;
+        this.initDeadline = 0;
+        this.initFallback = InitFallback.STDERR;
+        this.fallbackSink = FallbackSink.forName(null);
+        this.fallbackOnOpenCircuit = false;
+        this.metricsBinder = null;
         isTest=true;
-        scheduler.scheduleAtFixedRate(this::flushBatch,  0L, flushIntervalMs, TimeUnit.MILLISECONDS);
+        dispatcher.register(flushSource);
     }
 
-    protected OciAsyncAppender(String name, Filter filter, Layout<? extends Serializable> layout,
-                               boolean ignoreExceptions, String logId, String configFile, String profile,
-                               int batchSize, long flushIntervalMs,boolean sysoutTrace) {
-        super(name, filter, layout, ignoreExceptions,Property.EMPTY_ARRAY);
-        this.sysoutTrace=sysoutTrace;
+    protected OciAsyncAppender(Builder<?> builder) {
+        super(builder.getName(), builder.getFilter(), builder.getLayout(), builder.isIgnoreExceptions(), builder.getPropertyArray());
+        this.sysoutTrace=builder.sysoutTrace;
         sysoutTrace("Appender constructor called");
         if (sysoutTrace) sysoutTrace("SYSOUT TRACE ENABLED");
+        String configFile = builder.configFile;
+        String profile = builder.profile;
+        String region = builder.region;
+        String endpoint = builder.endpoint;
+        String compression = builder.compression;
+        int maxInFlightRequests = builder.maxInFlightRequests;
+        boolean virtualThreads = builder.virtualThreads;
+        //attribute values are parsed before the shared client and dispatcher are acquired
+        this.format = Format.valueOf(builder.format.trim().toUpperCase());
+        this.batchKey = BatchKey.valueOf(builder.batchKey.trim().toUpperCase());
+        this.overflowPolicy = OverflowPolicy.valueOf(builder.overflowPolicy.trim().toUpperCase());
+        this.initFallback = InitFallback.valueOf(builder.initFallback.trim().toUpperCase());
+        this.metricsBinder = newMetricsBinder(builder.metricsBinder);
+        this.router = LogIdRouter.create(builder.routeBy, builder.routes);
+        TransportConfig transport = new TransportConfig(TransportConfig.Connector.valueOf(builder.connector.trim().toUpperCase()),
+                                                        maxInFlightRequests, builder.keepAliveMs, builder.connectTimeoutMs,
+                                                        builder.readTimeoutMs);
+        this.fallbackSink = FallbackSink.forName(builder.fallbackSink);
+        //appenders with the same credentials, region and sender settings share client, senders and flusher
+        String sharedKey = SharedDispatchers.key(isValidFile(configFile) ? configFile : null, profile, region, endpoint, compression,
+                                                 transport, maxInFlightRequests, builder.preserveOrder, virtualThreads);
+        String sharedName = "shared-" + Integer.toHexString(sharedKey.hashCode());
+        //the shared client outlives this appender: its supplier only holds the configuration values
+        boolean traceClient = sysoutTrace;
+        SharedDispatchers.Lease acquired;
+        try {
+            acquired = SharedDispatchers.acquire(sharedKey,
+                    () -> new LazyClient(sharedName, () -> createClient(configFile, profile, region, endpoint, compression, transport,
+                                                                    traceClient)),
+                    () -> new LogDispatcher(sharedName, maxInFlightRequests, builder.preserveOrder, virtualThreads));
+        } catch (RuntimeException | Error e) {
+            fallbackSink.close();
+            throw e;
+        }
+        this.lease = acquired;
+        this.client = lease.client;
+        this.dispatcher = lease.dispatcher;
+        if (sysoutTrace) sysoutTrace("Shared dispatcher "+sharedKey+" references:"+SharedDispatchers.references(sharedKey));
+
+        this.logId = builder.logId;
+        this.batchSize = builder.batchSize;
+        this.flushIntervalMs = builder.flushIntervalMs;
+        this.lingerMs = builder.lingerMs >= 0 ? builder.lingerMs : builder.flushIntervalMs;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.maxEntryBytes = entryLimit(builder.maxBatchBytes, builder.maxEntryBytes);
+        this.preserveOrder = builder.preserveOrder;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(builder.blockTimeoutMs);
+        this.sampleRate = Math.max(1, builder.sampleRate);
+        this.shutdownTimeoutMs = builder.shutdownTimeoutMs;
+        this.metrics = newMetrics();
+        this.defaultTarget = new Target(metrics);
+        this.jmx = builder.jmx;
+        this.warmUp = builder.warmUp;
+        this.initDeadline = System.currentTimeMillis() + builder.initTimeoutMs;
+        this.fallbackOnOpenCircuit = builder.fallbackOnOpenCircuit;
+        isTest=false;
+        testClient=null;
+        //the rate limits are parsed with the metrics they count into: a bad value must not leave the lease behind
+        EventReducer eventReducer;
+        try {
+            eventReducer = EventReducer.create(builder.rateLimits, builder.dedupWindowMs, router != null ? router::resolve : null, metrics);
+        } catch (RuntimeException | Error e) {
+            releaseLease();
+            fallbackSink.close();
+            throw e;
+        }
+        this.reducer = eventReducer;
+        //last: nothing can fail once the spill log is open
+        this.spill = openSpillLog(builder.spillDirectory, builder.spillMaxBytes);
+
+        dispatcher.register(flushSource);
+        if (client instanceof LazyClient) {
+            //the buffered events are sent as soon as the client is ready
+            ((LazyClient) client).onReady(() -> dispatcher.wakeUp(true));
+        }
+    }
+
+    //the constructor failed after acquiring the lease: the last reference closes dispatcher and client
+    private void releaseLease() {
+        if (SharedDispatchers.release(lease)) {
+            lease.dispatcher.close();
+            lease.client.close();
+        }
+    }
+
+    private static OciLoggingClient createClient(String configFile, String profile, String region, String endpoint,
+                                                 String compression, TransportConfig transport, boolean trace) {
         try {
             AbstractAuthenticationDetailsProvider provider;
-            if (isValidFile(configFile)) {
-                sysoutTrace("Using config file "+configFile+" ignoreExceptions:"+ignoreExceptions);
+            if (isReadableFile(configFile)) {
+                if (trace) System.out.println("Using config file "+configFile);
                 ConfigFileReader.ConfigFile config = ConfigFileReader.parse(configFile, profile);
                 provider = new ConfigFileAuthenticationDetailsProvider(config);
             } else {
-                sysoutTrace("Using resource principal ignoreExceptions:"+ignoreExceptions);
+                if (trace) System.out.println("Using resource principal");
                 //No Config file trying Resource principal, this works if you run in VM on oci or OKE
                 //provider = ResourcePrincipalAuthenticationDetailsProvider.builder().build();
                 provider = InstancePrincipalsAuthenticationDetailsProvider.builder().build();
             }
-            this.client = new OciLoggingClientImpl(provider);
+            return new OciLoggingClientImpl(provider, region, endpoint, PayloadCodec.forName(compression, transport.getMaxConnections()),
+                                            transport);
         } catch (Exception e) {
             throw new RuntimeException("Error initializing OCI LoggingClient", e);
         }
+    }
 
-        this.logId = logId;
-        this.batchSize = batchSize;
-        this.flushIntervalMs = flushIntervalMs;
-        isTest=false;
-        testClient=null;
+    //an entry must fit a request with its batch, with some room for the id and time of the entry
+    private static int entryLimit(long maxBatchBytes, int maxEntryBytes) {
+        return (int) Math.min(maxEntryBytes, maxBatchBytes - PayloadSize.REQUEST_OVERHEAD - PayloadSize.BATCH_OVERHEAD
+                                             - PayloadSize.ENTRY_OVERHEAD - 256);
+    }
 
-        scheduler.scheduleAtFixedRate(this::flushBatch,  0L, flushIntervalMs, TimeUnit.MILLISECONDS);
+    private SpillLog openSpillLog(String spillDirectory, long spillMaxBytes) {
+        if (spillDirectory == null || spillDirectory.isEmpty()) {
+            return null;
+        }
+        try {
+            SpillLog log = new SpillLog(Paths.get(spillDirectory), spillMaxBytes);
+            if (sysoutTrace) sysoutTrace("Spill log opened in "+spillDirectory+" empty:"+log.isEmpty());
+            return log;
+        } catch (Exception e) {
+            System.err.println("[OCI-APPENDER-ERROR] cannot open spill directory "+spillDirectory+": "+e+" spill disabled");
+            return null;
+        }
     }
 
     protected boolean isValidFile(String file) {
+        return isReadableFile(file);
+    }
+
+    private static boolean isReadableFile(String file) {
         if (file == null) {
             return false;
         }
@@ -173,160 +456,1046 @@ public class OciAsyncAppender extends AbstractAppender {
                 && Files.isReadable(path);
     }
 
-    @PluginFactory
-    public static OciAsyncAppender createAppender(
-            @PluginAttribute("name") String name,
-            @PluginAttribute("logId") String logId,
-            @PluginAttribute("configFile") String configFile,
-            @PluginAttribute("profile") String profile,
-            @PluginAttribute(value = "batchSize", defaultInt = 50) int batchSize,
-            @PluginAttribute(value = "flushIntervalMs", defaultLong = 2000) long flushIntervalMs,
-            @PluginElement("Layout") Layout<? extends Serializable> layout,
-            @PluginElement("Filter") Filter filter,
-            @PluginAttribute(value = "sysoutTrace", defaultBoolean = false) boolean sysoutTrace,
-            @PluginAttribute(value = "ignoreExceptions", defaultBoolean = true) boolean ignoreExceptions) {
+    /*
+     * Plugin builder: one field per appender attribute, so a new attribute cannot shift the others.
+     * Programmatic use: OciAsyncAppender.newBuilder().setName("OCI").setLogId(...).setLayout(...).build()
+     */
+    public static class Builder<B extends Builder<B>> extends AbstractAppender.Builder<B>
+            implements org.apache.logging.log4j.core.util.Builder<OciAsyncAppender> {
+        @PluginBuilderAttribute
+        private String logId; // OCID of the target log
+        @PluginBuilderAttribute
+        private String configFile; // OCI config file, default ~/.oci/config (instance principal if missing)
+        @PluginBuilderAttribute
+        private String profile; // profile of the config file, default DEFAULT
+        @PluginBuilderAttribute
+        private int batchSize = 50;
+        @PluginBuilderAttribute
+        private long flushIntervalMs = 2000;
+        @PluginBuilderAttribute
+        private long lingerMs = -1; // -1 = flushIntervalMs
+        @PluginBuilderAttribute
+        private String batchKey = "LEVEL";
+        @PluginBuilderAttribute
+        private long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        @PluginBuilderAttribute
+        private int maxEntryBytes = DEFAULT_MAX_ENTRY_BYTES;
+        @PluginBuilderAttribute
+        private int maxInFlightRequests = 1;
+        @PluginBuilderAttribute
+        private boolean preserveOrder = false;
+        @PluginBuilderAttribute
+        private boolean virtualThreads = false;
+        @PluginBuilderAttribute
+        private String spillDirectory;
+        @PluginBuilderAttribute
+        private long spillMaxBytes = DEFAULT_SPILL_MAX_BYTES;
+        @PluginBuilderAttribute
+        private String overflowPolicy = "DROP_NEWEST";
+        @PluginBuilderAttribute
+        private long blockTimeoutMs = DEFAULT_BLOCK_TIMEOUT_MS;
+        @PluginBuilderAttribute
+        private int sampleRate = DEFAULT_SAMPLE_RATE;
+        @PluginBuilderAttribute
+        private long shutdownTimeoutMs = DEFAULT_SHUTDOWN_TIMEOUT_MS;
+        @PluginBuilderAttribute
+        private String rateLimits;
+        @PluginBuilderAttribute
+        private long dedupWindowMs = 0;
+        @PluginBuilderAttribute
+        private String compression = "none";
+        @PluginBuilderAttribute
+        private String region;
+        @PluginBuilderAttribute
+        private String endpoint;
+        @PluginBuilderAttribute
+        private String connector = "APACHE";
+        @PluginBuilderAttribute
+        private int connectTimeoutMs = TransportConfig.DEFAULT_CONNECT_TIMEOUT_MS;
+        @PluginBuilderAttribute
+        private int readTimeoutMs = TransportConfig.DEFAULT_READ_TIMEOUT_MS;
+        @PluginBuilderAttribute
+        private long keepAliveMs = TransportConfig.DEFAULT_KEEP_ALIVE_MS;
+        @PluginBuilderAttribute
+        private boolean warmUp = false;
+        @PluginBuilderAttribute
+        private long initTimeoutMs = DEFAULT_INIT_TIMEOUT_MS;
+        @PluginBuilderAttribute
+        private String initFallback = "STDERR";
+        @PluginBuilderAttribute
+        private String fallbackSink = "stdout";
+        @PluginBuilderAttribute
+        private boolean fallbackOnOpenCircuit = false;
+        @PluginBuilderAttribute
+        private String routeBy;
+        @PluginBuilderAttribute
+        private String routes;
+        @PluginBuilderAttribute
+        private String format = "TEXT";
+        @PluginBuilderAttribute
+        private boolean jmx = true;
+        @PluginBuilderAttribute
+        private String metricsBinder; // class name
+        @PluginBuilderAttribute
+        private boolean sysoutTrace = false;
+
+        public B setLogId(String logId) {
+            this.logId = logId;
+            return asBuilder();
+        }
+
+        public B setConfigFile(String configFile) {
+            this.configFile = configFile;
+            return asBuilder();
+        }
+
+        public B setProfile(String profile) {
+            this.profile = profile;
+            return asBuilder();
+        }
+
+        public B setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return asBuilder();
+        }
+
+        public B setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+            return asBuilder();
+        }
+
+        public B setLingerMs(long lingerMs) {
+            this.lingerMs = lingerMs;
+            return asBuilder();
+        }
 
-        if (configFile == null || configFile.isEmpty()) { 
-            configFile = System.getProperty("user.home") + "/.oci/config"; 
+        public B setBatchKey(String batchKey) {
+            this.batchKey = batchKey;
+            return asBuilder();
         }
-        
-        if (profile == null || profile.isEmpty()) { 
-            profile = "DEFAULT"; 
+
+        public B setMaxBatchBytes(long maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return asBuilder();
         }
 
-        if (layout == null) {
-            layout = PatternLayout.createDefaultLayout();
+        public B setMaxEntryBytes(int maxEntryBytes) {
+            this.maxEntryBytes = maxEntryBytes;
+            return asBuilder();
         }
 
-        return new OciAsyncAppender(name, filter, layout, ignoreExceptions, logId, configFile, profile, batchSize, flushIntervalMs,sysoutTrace);
+        public B setMaxInFlightRequests(int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            return asBuilder();
+        }
+
+        public B setPreserveOrder(boolean preserveOrder) {
+            this.preserveOrder = preserveOrder;
+            return asBuilder();
+        }
+
+        public B setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return asBuilder();
+        }
+
+        public B setSpillDirectory(String spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return asBuilder();
+        }
+
+        public B setSpillMaxBytes(long spillMaxBytes) {
+            this.spillMaxBytes = spillMaxBytes;
+            return asBuilder();
+        }
+
+        public B setOverflowPolicy(String overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return asBuilder();
+        }
+
+        public B setBlockTimeoutMs(long blockTimeoutMs) {
+            this.blockTimeoutMs = blockTimeoutMs;
+            return asBuilder();
+        }
+
+        public B setSampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return asBuilder();
+        }
+
+        public B setShutdownTimeoutMs(long shutdownTimeoutMs) {
+            this.shutdownTimeoutMs = shutdownTimeoutMs;
+            return asBuilder();
+        }
+
+        public B setRateLimits(String rateLimits) {
+            this.rateLimits = rateLimits;
+            return asBuilder();
+        }
+
+        public B setDedupWindowMs(long dedupWindowMs) {
+            this.dedupWindowMs = dedupWindowMs;
+            return asBuilder();
+        }
+
+        public B setCompression(String compression) {
+            this.compression = compression;
+            return asBuilder();
+        }
+
+        public B setRegion(String region) {
+            this.region = region;
+            return asBuilder();
+        }
+
+        public B setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+            return asBuilder();
+        }
+
+        public B setConnector(String connector) {
+            this.connector = connector;
+            return asBuilder();
+        }
+
+        public B setConnectTimeoutMs(int connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            return asBuilder();
+        }
+
+        public B setReadTimeoutMs(int readTimeoutMs) {
+            this.readTimeoutMs = readTimeoutMs;
+            return asBuilder();
+        }
+
+        public B setKeepAliveMs(long keepAliveMs) {
+            this.keepAliveMs = keepAliveMs;
+            return asBuilder();
+        }
+
+        public B setWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+            return asBuilder();
+        }
+
+        public B setInitTimeoutMs(long initTimeoutMs) {
+            this.initTimeoutMs = initTimeoutMs;
+            return asBuilder();
+        }
+
+        public B setInitFallback(String initFallback) {
+            this.initFallback = initFallback;
+            return asBuilder();
+        }
+
+        public B setFallbackSink(String fallbackSink) {
+            this.fallbackSink = fallbackSink;
+            return asBuilder();
+        }
+
+        public B setFallbackOnOpenCircuit(boolean fallbackOnOpenCircuit) {
+            this.fallbackOnOpenCircuit = fallbackOnOpenCircuit;
+            return asBuilder();
+        }
+
+        public B setRouteBy(String routeBy) {
+            this.routeBy = routeBy;
+            return asBuilder();
+        }
+
+        public B setRoutes(String routes) {
+            this.routes = routes;
+            return asBuilder();
+        }
+
+        public B setFormat(String format) {
+            this.format = format;
+            return asBuilder();
+        }
+
+        public B setJmx(boolean jmx) {
+            this.jmx = jmx;
+            return asBuilder();
+        }
+
+        public B setMetricsBinder(String metricsBinder) {
+            this.metricsBinder = metricsBinder;
+            return asBuilder();
+        }
+
+        public B setSysoutTrace(boolean sysoutTrace) {
+            this.sysoutTrace = sysoutTrace;
+            return asBuilder();
+        }
+
+        @Override
+        public OciAsyncAppender build() {
+            if (configFile == null || configFile.isEmpty()) {
+                configFile = System.getProperty("user.home") + "/.oci/config";
+            }
+            if (profile == null || profile.isEmpty()) {
+                profile = "DEFAULT";
+            }
+            if (getLayout() == null) {
+                setLayout(PatternLayout.createDefaultLayout());
+            }
+            if (entryLimit(maxBatchBytes, maxEntryBytes) <= 0) {
+                throw new IllegalArgumentException("maxEntryBytes="+maxEntryBytes+" maxBatchBytes="+maxBatchBytes
+                                                   +": no room for a log entry in a request");
+            }
+            return new OciAsyncAppender(this);
+        }
+    }
+
+    @PluginBuilderFactory
+    public static <B extends Builder<B>> B newBuilder() {
+        return new Builder<B>().asBuilder();
     }
 
     @Override
     public void append(LogEvent event) {
-        try {
-            String msg; 
-            if (event.getMessage() instanceof SimpleMessage) {
-                msg = event.getMessage().toString(); 
-            } else {
-                msg = new String(getLayout().toByteArray(event)); 
+        metrics.appended.increment();
+        if (reducer != null && !reducer.accept(event)) {
+            return; // collapsed repeat or over the rate limit, counted by the reducer
+        }
+        long seq = admit(event) ? queue.tryClaim() : -1L;
+        if (seq < 0) {
+            //ring full or over the policy threshold: the spill log takes the event first,
+            //the overflow policy only applies to what it cannot take
+            if (spillOverflow(event)) {
+                return;
+            }
+            seq = overflow();
+            if (seq < 0) {
+                return; // dropped, counted by overflow()
             }
-            String level = event.getLevel().name(); 
-            LogMessage lm=new LogMessage(msg, level, Instant.ofEpochMilli(event.getTimeMillis()));
-           sysoutTrace("Appending "+lm);
-            queue.offer(lm); // non blocca mai
+        }
+        LogSlot slot = queue.get(seq);
+        try {
+            render(event, slot);
+            if (sysoutTrace) sysoutTrace("Appending ["+event.getLevel()+"]"+event.getMessage().getFormattedMessage());
         } catch (Exception e) {
             if (!ignoreExceptions()) throw new RuntimeException(e);
+        } finally {
+            queue.publish(seq);
+        }
+        if (dispatcher.isParked()) {
+            //the flusher may be parked on a later deadline (dedup sweep, open circuit, another appender's lingerMs)
+            dispatcher.wakeUp(queue.size() >= batchSize, lingerNanos);
         }
     }
 
-    private int flushBatch() {
-        sysoutTrace("Starting flush batch");
-        int flushed=0;
-        List<LogMessage> drained = null;
+    //garbage free: the message/layout is written into the slot buffers, no String per event
+    private void render(LogEvent event, LogSlot slot) {
+        slot.start(event.getLevel(), event.getLoggerName(), event.getTimeMillis());
+        if (router != null) {
+            slot.logId = router.resolve(event);
+        }
+        Message message = event.getMessage();
+        Layout<? extends Serializable> layout = getLayout();
+        if (format == Format.JSON) {
+            JsonEventWriter.write(event, slot.text);
+        } else if (message instanceof SimpleMessage) {
+            ((SimpleMessage) message).formatTo(slot.text);
+        } else if (layout instanceof PatternLayout) {
+            ((PatternLayout) layout).serialize(event, slot.text);
+        } else {
+            slot.startBytes(layout instanceof StringLayout ? ((StringLayout) layout).getCharset() : Charset.defaultCharset());
+            layout.encode(event, slot);
+        }
+        slot.valid = true;
+    }
+
+    //SAMPLE and LEVEL_PRIORITY turn events away before the ring is full
+    private boolean admit(LogEvent event) {
+        switch (overflowPolicy) {
+            case SAMPLE:
+                //above 75% only one event out of sampleRate is queued
+                return queue.size() < queue.capacity() / 4 * 3 || sampleCounter.getAndIncrement() % sampleRate == 0;
+            case LEVEL_PRIORITY:
+                //the last 10% of the ring is kept for WARN and above
+                return queue.size() < queue.capacity() / 10 * 9 || event.getLevel().isMoreSpecificThan(Level.WARN);
+            default:
+                return true;
+        }
+    }
+
+    //event not queued: true if the spill log took it
+    private boolean spillOverflow(LogEvent event) {
+        if (spill == null) {
+            return false;
+        }
+        boolean spilled = false;
+        LogSlot scratch = overflowSlot.get();
         try {
-            if (!canSend()) {
-                return flushed;
+            render(event, scratch);
+            spilled = spill.append(scratch.level.name(), scratch.loggerName, scratch.timeMillis, scratch.materialize(), scratch.logId,
+                                   entryIds.nextId());
+        } catch (Exception e) {
+            if (!ignoreExceptions()) throw new RuntimeException(e);
+        } finally {
+            scratch.clear();
+        }
+        if (spilled && dispatcher.isParked()) {
+            dispatcher.wakeUp(false);
+        }
+        return spilled;
+    }
+
+    //event neither queued nor spilled: DROP_OLDEST and BLOCK wait for a slot, -1 if it is dropped
+    private long overflow() {
+        long seq = -1L;
+        if ((overflowPolicy == OverflowPolicy.DROP_OLDEST || overflowPolicy == OverflowPolicy.BLOCK) && !isStopping()) {
+            //bounded wait: the flusher frees slots (evicting the oldest for DROP_OLDEST)
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                evictRequests.incrementAndGet();
+            }
+            while ((seq = queue.tryClaim()) < 0 && System.nanoTime() < deadline) {
+                dispatcher.wakeUp(true);
+                LockSupport.parkNanos(100_000L);
             }
-            boolean ok=true;
-        
-            while(canSend()&&!queue.isEmpty()&&ok&&(flushed<batchSize)) {
-                drained = drainHomogeneousBatch();
+        }
+        if (seq < 0) {
+            metrics.dropped.increment();
+            if (dispatcher.isParked()) {
+                dispatcher.wakeUp(false);
+            }
+        }
+        return seq;
+    }
+
+    //DROP_OLDEST: frees the slots requested by blocked producers (flusher thread only)
+    private void evictOldest() {
+        int requests = evictRequests.getAndSet(0);
+        LogSlot slot;
+        while (requests > 0 && (slot = queue.peek()) != null) {
+            if (slot.valid) {
+                metrics.evicted.increment();
+                requests--;
+            }
+            slot.clear();
+            queue.consume();
+        }
+    }
 
-                if (drained.isEmpty()) return flushed;
+    //once the queue is drained a single entry reports the events lost since the last report
+    private void reportDrops() {
+        long drops = metrics.getEventsDropped();
+        if (drops > reportedDrops && isMemoryEmpty()) {
+            retryLane.addLast(new LogMessage("[OCI-APPENDER-WARN] "+(drops-reportedDrops)+" events dropped (overflowPolicy="+overflowPolicy+")",
+                                             "WARN", getName(), System.currentTimeMillis()));
+            reportedDrops = drops;
+        }
+        long rateLimited = metrics.getEventsRateLimited();
+        if (rateLimited > reportedRateLimited && isMemoryEmpty()) {
+            retryLane.addLast(new LogMessage("[OCI-APPENDER-WARN] "+(rateLimited-reportedRateLimited)+" events over the rate limits (rateLimits)",
+                                             "WARN", getName(), System.currentTimeMillis()));
+            reportedRateLimited = rateLimited;
+        }
+    }
 
-                List<LogMessage> notSent = sendWithRetry(drained);
-                ok=notSent.isEmpty();
-                flushed+=drained.size()-notSent.size();
+    //repeats collapsed by dedupWindowMs: one entry per window, with the level, logger and target of the first event
+    private void reportRepeats(long nowMillis) {
+        if (reducer != null) {
+            reducer.sweep(nowMillis, (level, loggerName, template, logId, repeats) ->
+                    retryLane.addLast(new LogMessage(template+" [repeated "+repeats+" times]", level.name(), loggerName,
+                                                     System.currentTimeMillis(), logId)));
+        }
+    }
 
-                if (ok) {
-                    onSuccess();
-                } else {
-                    requeueAtHead(notSent); 
-                    onFailure();
+    //appends the messages in order until the log is full, returns how many it took
+    private static int spillTo(SpillLog log, List<LogMessage> messages) {
+        int spilled = 0;
+        while (spilled < messages.size()) {
+            LogMessage msg = messages.get(spilled);
+            if (!log.append(msg.level, msg.loggerName, msg.timestamp, msg.message, msg.logId, msg.id())) {
+                break; // spill log full
+            }
+            spilled++;
+        }
+        return spilled;
+    }
+
+    //messages that cannot stay in memory: to the spill log if configured, else back to the retry lane
+    private void spillOrRequeue(List<LogMessage> messages) {
+        int spilled = 0;
+        if (spill != null) {
+            spilled = spillTo(spill, messages);
+            settled(messages.subList(0, spilled));
+        }
+        if (spilled < messages.size()) {
+            requeueAtHead(messages.subList(spilled, messages.size()));
+        }
+    }
+
+    //messages that left memory for good (sent, rejected, dropped or spilled again): the spill log poll
+    //they were replayed from is committed when its last message is settled
+    private void settled(List<LogMessage> messages) {
+        if (spill == null) {
+            return;
+        }
+        for (LogMessage msg : messages) {
+            SpillPoll poll = msg.spillPoll;
+            if (poll != null && poll.outstanding.decrementAndGet() == 0) {
+                spill.commit(poll.position);
+            }
+        }
+    }
+
+    private final LogDispatcher.Source flushSource = new LogDispatcher.Source() {
+        @Override
+        public void flush() {
+            metrics.sampleQueueDepth();
+            evictOldest();
+            if (!isClientReady()) {
+                if (System.currentTimeMillis() >= initDeadline) {
+                    drainToFallback();
                 }
+                return;
             }
-        } catch (Exception e) {
-            if ((drained!=null)&&(!drained.isEmpty())) { 
-                requeueAtHead(drained); 
-                LogMessage err=new LogMessage("[OCI-APPENDER-ERROR] Exception occurred during oci flush "+e.getClass()+" "+e.getMessage()+" this may cause duplicated messages", "ERROR",Instant.now());
-                queue.addFirst(err);
+            reportRepeats(System.currentTimeMillis());
+            flushBatch(false);
+            reportDrops();
+        }
+
+        @Override
+        public long nextFlushDelay() {
+            if (evictRequests.get() > 0) {
+                return 0L; // DROP_OLDEST producers wait for a slot, it does not make a batch ready
+            }
+            return OciAsyncAppender.this.nextFlushDelay();
+        }
+    };
+
+    //flusher thread only (it peeks the ring)
+    private long nextFlushDelay() {
+        if (!isClientReady()) {
+            //LazyClient wakes the flusher up when ready
+            long initWait = initDeadline - System.currentTimeMillis();
+            if (initWait > 0) {
+                return TimeUnit.MILLISECONDS.toNanos(initWait);
+            }
+            return isMemoryEmpty() ? Long.MAX_VALUE : 0L;
+        }
+        long parkedDelay = parkedFlushDelay();
+        if (reducer != null) {
+            parkedDelay = Math.min(parkedDelay, reducer.nextSweepDelay(System.currentTimeMillis()));
+        }
+        if (isMemoryEmpty() && !canReplay()) {
+            boolean unreported = metrics.getEventsDropped() > reportedDrops || metrics.getEventsRateLimited() > reportedRateLimited;
+            return unreported ? 0L : parkedDelay;
+        }
+        if (router == null && !fallbackOnOpenCircuit) {
+            //a single target log: nothing is drained while its circuit is open
+            long breakerWait = defaultTarget.breaker.waitMillis();
+            if (breakerWait > 0) {
+                return breakerWait == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(breakerWait);
+            }
+        }
+        if (!dispatcher.hasFreeSlot()) {
+            return Long.MAX_VALUE; // a finished request wakes the flusher up
+        }
+        if (!retryLane.isEmpty() || queue.size() >= batchSize || canReplay()) {
+            return 0L;
+        }
+        LogSlot head = queue.peek();
+        if (head == null) {
+            return TimeUnit.MILLISECONDS.toNanos(1); // claimed but not published yet
+        }
+        long due = head.timeMillis + lingerMs - System.currentTimeMillis();
+        return Math.min(due <= 0 ? 0L : TimeUnit.MILLISECONDS.toNanos(due), parkedDelay);
+    }
+
+    //nanos until the circuit of a target with parked messages lets a request through
+    private long parkedFlushDelay() {
+        if (parkedMessages.get() == 0) {
+            return Long.MAX_VALUE;
+        }
+        long wait = Long.MAX_VALUE;
+        for (Target target : targets.values()) {
+            if (!target.parked.isEmpty()) {
+                wait = Math.min(wait, target.breaker.waitMillis());
+            }
+        }
+        if (!defaultTarget.parked.isEmpty()) {
+            wait = Math.min(wait, defaultTarget.breaker.waitMillis());
+        }
+        return wait == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(wait);
+    }
+
+    //a target whose circuit closed gets all its parked messages back, a half open one a batch for the probe
+    private void unparkReady() {
+        if (parkedMessages.get() == 0) {
+            return;
+        }
+        unpark(defaultTarget);
+        for (Target target : targets.values()) {
+            unpark(target);
+        }
+    }
+
+    private void unpark(Target target) {
+        if (target.parked.isEmpty() || target.breaker.waitMillis() > 0) {
+            return;
+        }
+        int max = target.breaker.state() == CircuitBreaker.State.CLOSED ? Integer.MAX_VALUE : batchSize;
+        List<LogMessage> ready = new ArrayList<>();
+        LogMessage msg;
+        while (ready.size() < max && (msg = target.parked.pollFirst()) != null) {
+            ready.add(msg);
+        }
+        parkedMessages.addAndGet(-ready.size());
+        //older than anything in the retry lane and in the ring
+        requeueAtHead(ready);
+    }
+
+    //messages of a target whose circuit is open: kept aside up to the ring capacity, the rest goes to the
+    //spill log and is dropped only without one (or when it is full)
+    private void park(Target target, List<LogMessage> messages) {
+        int room = Math.max(0, QUEUE_CAPACITY - target.parked.size());
+        int kept = Math.min(room, messages.size());
+        target.parked.addAll(messages.subList(0, kept));
+        parkedMessages.addAndGet(kept);
+        List<LogMessage> excess = messages.subList(kept, messages.size());
+        int spilled = spill != null ? spillTo(spill, excess) : 0;
+        metrics.dropped.add(excess.size() - spilled);
+        settled(excess);
+    }
+
+    //circuit of the target open: with fallbackOnOpenCircuit the messages are written to the fallback sink
+    //(one write per request, on the flusher) instead of waiting for the circuit
+    private void parkOrDivert(String targetLogId, Target target, List<LogMessage> messages) {
+        if (fallbackOnOpenCircuit) {
+            try {
+                fallbackSink.write(targetLogId, toLogEntryBatches(messages));
+                metrics.fallback.add(messages.size());
+                settled(messages);
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[OCI-APPENDER-ERROR] fallback sink failed: "+e+", messages kept for the circuit");
             }
-            onFailure();
+        }
+        park(target, messages);
+    }
+
+    //force: send partial batches without waiting for lingerMs
+    private int flushBatch(boolean force) {
+        sysoutTrace("Starting flush batch");
+        int flushed=0;
+        try {
+            unparkReady();
+            //one request per free in flight slot: the senders encode and send them concurrently
+            //(with a single target log nothing is drained while its circuit is open, unless it goes to the fallback sink)
+            while((router!=null||fallbackOnOpenCircuit||defaultTarget.breaker.waitMillis()==0)&&!isQueueEmpty()&&(force||nextFlushDelay()<=0)&&dispatcher.tryAcquire()) {
+                List<LogMessage> drained = drainBatch();
+
+                if (drained.isEmpty()) {
+                    dispatcher.release();
+                    return flushed;
+                }
+
+                //from here the deliveries own the messages: a failure is retried, spilled or requeued by them
+                flushed+=dispatch(drained);
+            }
+        } catch (Exception e) {
+            System.err.println("[OCI-APPENDER-ERROR] flush failed: "+e.getClass()+" "+e.getMessage());
         }
         return flushed;
     }
 
-    private List<LogMessage> drainHomogeneousBatch() { 
-        List<LogMessage> batch = new ArrayList<>(batchSize); 
-        LogMessage first = queue.poll(); 
-        if (first == null) return batch; 
-        batch.add(first); 
-        String level = first.level; 
-        while (batch.size() < batchSize) { 
-            LogMessage next = queue.peek(); 
-            if (next == null || !next.level.equals(level)) {
-                 break; // severità cambiata → stop 
-            } 
-            batch.add(queue.poll()); 
+    //hands the drained window to the senders using the slot already acquired, returns the entries dispatched
+    private int dispatch(List<LogMessage> drained) {
+        if (!preserveOrder && router == null) {
+            if (!defaultTarget.breaker.tryAcquire()) {
+                dispatcher.release();
+                parkOrDivert(logId, defaultTarget, drained);
+                return 0;
+            }
+            dispatcher.submit(null, new PutLogsDelivery(logId, drained));
+            return drained.size();
+        }
+        //one request per target log, and per lane when every key must keep its order: sent concurrently
+        Map<String, List<LogMessage>> parts = new LinkedHashMap<>();
+        for (LogMessage msg : drained) {
+            String target = targetLogId(msg);
+            String part = preserveOrder ? target + "|" + dispatcher.lane(target + "|" + groupKey(msg)) : target;
+            parts.computeIfAbsent(part, p -> new ArrayList<>()).add(msg);
+        }
+        int dispatched=0;
+        List<LogMessage> notDispatched = new ArrayList<>();
+        boolean acquired=true;
+        for (List<LogMessage> part : parts.values()) {
+            if (acquired||dispatcher.tryAcquire()) {
+                LogMessage first = part.get(0);
+                String target = targetLogId(first);
+                Target destination = target(target);
+                if (!destination.breaker.tryAcquire()) {
+                    //circuit of this log open: the slot stays for the next part
+                    acquired=true;
+                    parkOrDivert(target, destination, part);
+                    continue;
+                }
+                acquired=false;
+                Integer lane = preserveOrder ? dispatcher.lane(target + "|" + groupKey(first)) : null;
+                dispatcher.submit(lane, new PutLogsDelivery(target, part));
+                dispatched+=part.size();
+            } else {
+                notDispatched.addAll(part);
+            }
+        }
+        if (acquired) {
+            dispatcher.release();
+        }
+        if (!notDispatched.isEmpty()) {
+            //no free slot: back to the head, in the original order
+            List<LogMessage> inOrder = new ArrayList<>(drained);
+            inOrder.retainAll(notDispatched);
+            requeueAtHead(inOrder);
+        }
+        return dispatched;
+    }
+
+    //drains up to batchSize messages of any level and up to maxBatchBytes of estimated payload:
+    //grouping happens when the request is built
+    private List<LogMessage> drainBatch() { 
+        List<LogMessage> batch = new ArrayList<>(Math.min(batchSize, 1024)); 
+        Set<String> groups = new HashSet<>();
+        long payload = PayloadSize.REQUEST_OVERHEAD;
+        //replay the spill log through the retry lane once the circuit lets us send
+        if (retryLane.isEmpty() && !isStopping() && canReplay()) {
+            SpillLog.Batch replay = spill.poll(batchSize);
+            //the records may be split across requests that end in any order: the poll is committed by the last one
+            SpillPoll poll = new SpillPoll(replay.position, replay.records.size());
+            for (SpillLog.Record record : replay.records) {
+                LogMessage msg = new LogMessage(record.message, record.level, record.loggerName, record.timestamp,
+                                                PayloadSize.jsonLength(record.message), record.logId, record.id);
+                msg.spillPoll = poll;
+                retryLane.addLast(msg);
+            }
+        }
+        //retries first: they are older than anything still in the ring
+        LogMessage retry;
+        while (batch.size() < batchSize && (retry = retryLane.pollFirst()) != null) {
+            String key = retry.logId == null ? groupKey(retry) : retry.logId + "|" + groupKey(retry);
+            long size = entrySize(groups, key, Math.min(retry.bytes, maxEntryBytes));
+            if (!batch.isEmpty() && payload + size > maxBatchBytes) {
+                retryLane.addFirst(retry);
+                return batch;
+            }
+            if (retry.bytes > maxEntryBytes) {
+                batch.add(splitOversized(retry));
+                return batch;
+            }
+            batch.add(retry);
+            groups.add(key);
+            payload += size;
+        }
+        //then the whole published run of the ring in one pass
+        LogSlot slot;
+        while (batch.size() < batchSize && (slot = queue.peek()) != null) { 
+            if (slot.valid) {
+                String level = slot.level.name();
+                String key = slot.logId == null ? groupKey(level, slot.loggerName) : slot.logId + "|" + groupKey(level, slot.loggerName);
+                int bytes = slot.encodedLength();
+                long size = entrySize(groups, key, Math.min(bytes, maxEntryBytes));
+                if (!batch.isEmpty() && payload + size > maxBatchBytes) {
+                    break; // request full, the slot stays for the next one
+                }
+                LogMessage msg = new LogMessage(slot.materialize(), level, slot.loggerName, slot.timeMillis, bytes, slot.logId);
+                slot.clear();
+                queue.consume();
+                if (msg.bytes > maxEntryBytes) {
+                    //the following parts are next in the retry lane: stop here to keep them in order
+                    batch.add(splitOversized(msg));
+                    break;
+                }
+                batch.add(msg);
+                groups.add(key);
+                payload += size;
+            } else {
+                slot.clear();
+                queue.consume();
+            }
         } 
         return batch; 
     }
 
+    private static long entrySize(Set<String> groups, String key, int bytes) {
+        long size = bytes + PayloadSize.ENTRY_OVERHEAD;
+        if (!groups.contains(key)) {
+            size += PayloadSize.BATCH_OVERHEAD + key.length();
+        }
+        return size;
+    }
+
+    //splits a message bigger than maxEntryBytes: returns the first part and queues the others at the head
+    private LogMessage splitOversized(LogMessage msg) {
+        List<String> chunks = PayloadSize.split(msg.message, maxEntryBytes - 32);
+        List<LogMessage> parts = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            String part = chunks.get(i) + " [part " + (i + 1) + "/" + chunks.size() + "]";
+            LogMessage partMsg = new LogMessage(part, msg.level, msg.loggerName, msg.timestamp, msg.logId);
+            partMsg.spillPoll = msg.spillPoll;
+            parts.add(partMsg);
+        }
+        if (msg.spillPoll != null) {
+            //every part is settled on its own
+            msg.spillPoll.outstanding.addAndGet(parts.size() - 1);
+        }
+        requeueAtHead(parts.subList(1, parts.size()));
+        return parts.get(0);
+    }
+
     private void requeueAtHead(List<LogMessage> messages) { 
         for (int i = messages.size() - 1; i >= 0; i--) { 
-            queue.addFirst(messages.get(i)); 
+            retryLane.addFirst(messages.get(i)); 
         } 
     }
 
-    private List<LogMessage> sendWithRetry(List<LogMessage> messages) {
-        sysoutTrace("Starting sendWithRetry for "+messages.size()+" messages");
-        int attempt = 0;
-        long backoff = 1000;
+    private boolean isQueueEmpty() {
+        return isMemoryEmpty() && (spill == null || spill.isEmpty());
+    }
 
-        while (attempt < 5 && !messages.isEmpty()) {
-            try {
-                List<LogEntry> entries = new ArrayList<>(); 
-                for (LogMessage msg : messages) {
-                     entries.add(LogEntry.builder()
-                                 .id(UUID.randomUUID().toString())
-                                 .time(new Date(msg.timestamp.toEpochMilli()))
-                                 .data(msg.message)
-                                 .build()
-                                ); 
-                }
+    //the spill log is not replayed while the parked messages fill a ring: with a circuit still open
+    //the replayed records would only be parked and spilled again
+    private boolean canReplay() {
+        return spill != null && !spill.isEmpty() && parkedMessages.get() < QUEUE_CAPACITY;
+    }
+
+    private boolean isMemoryEmpty() {
+        return retryLane.isEmpty() && queue.isEmpty();
+    }
+
+    private boolean hasParked() {
+        return parkedMessages.get() > 0;
+    }
+
+    //moves everything still in memory to the spill log, replayed at the next start. Without a spill log
+    //the leftovers go to a spill log in the temp directory: nothing is lost silently at shutdown
+    private void spillRemaining() {
+        List<LogMessage> remaining = takeRemaining();
+        if (remaining.isEmpty()) {
+            return;
+        }
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "oci-log4j2-" + getName());
+        SpillLog log = spill != null ? spill : openSpillLog(directory.toString(), DEFAULT_SPILL_MAX_BYTES);
+        int saved = 0;
+        if (log != null) {
+            saved = spillTo(log, remaining);
+            //unsaved replayed records stay uncommitted: they are read again at the next start
+            settled(remaining.subList(0, saved));
+            if (log != spill) {
+                log.close();
+                System.err.println("[OCI-APPENDER-WARN] "+saved+" messages not sent before the shutdown deadline saved in "+directory
+                                   +" (use it as spillDirectory to send them)");
+            }
+        }
+        if (saved < remaining.size()) {
+            System.err.println("[OCI-APPENDER-ERROR] "+(remaining.size()-saved)+" messages lost at shutdown");
+        }
+    }
+
+    //everything still in memory: parked, retry lane and ring (flusher or stop() only)
+    private List<LogMessage> takeRemaining() {
+        List<LogMessage> remaining = new ArrayList<>(defaultTarget.parked);
+        defaultTarget.parked.clear();
+        for (Target target : targets.values()) {
+            remaining.addAll(target.parked);
+            target.parked.clear();
+        }
+        parkedMessages.set(0);
+        remaining.addAll(retryLane);
+        retryLane.clear();
+        LogSlot slot;
+        while ((slot = queue.peek()) != null) {
+            if (slot.valid) {
+                remaining.add(new LogMessage(slot.materialize(), slot.level.name(), slot.loggerName, slot.timeMillis, slot.logId));
+            }
+            slot.clear();
+            queue.consume();
+        }
+        return remaining;
+    }
+
+    //client still not ready after initTimeoutMs: the backlog is not kept in memory any longer (flusher thread only)
+    private void drainToFallback() {
+        List<LogMessage> remaining = takeRemaining();
+        int spilled = spill != null ? spillTo(spill, remaining) : 0;
+        for (LogMessage msg : remaining.subList(spilled, remaining.size())) {
+            if (initFallback == InitFallback.STDERR) {
+                System.err.print(msg.message.endsWith("\n") ? msg.message : msg.message + System.lineSeparator());
+            } else {
+                metrics.dropped.increment();
+            }
+        }
+        settled(remaining);
+    }
+
+    private boolean isClientReady() {
+        OciLoggingClient current = getClient();
+        return !(current instanceof LazyClient) || ((LazyClient) current).isReady();
+    }
+
+    //one PutLogs request: entries and ids are built once, on the sender thread, and reused by every attempt
+    private final class PutLogsDelivery implements LogDispatcher.Delivery {
+        private final String targetLogId;
+        private final CircuitBreaker breaker;
+        private final List<LogMessage> messages;
+        private List<LogEntryBatch> batches;
+        //the outcome of the request and stop() race for the messages: the first one handles them
+        private final AtomicBoolean taken = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        PutLogsDelivery(String targetLogId, List<LogMessage> messages) {
+            this.targetLogId = targetLogId;
+            this.breaker = target(targetLogId).breaker;
+            this.messages = messages;
+            pendingDeliveries.add(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
 
-                String level = messages.get(0).level;
-                
+        //stop() deadline passed: the messages are taken back, a later outcome is ignored
+        private boolean cancel() {
+            cancelled = true;
+            return taken.compareAndSet(false, true);
+        }
+
+        @Override
+        public void send() {
+            if (sysoutTrace) sysoutTrace("Starting send for "+messages.size()+" messages");
+            if (batches == null) {
+                batches = toLogEntryBatches(messages);
+            }
+            try {
+                long start = System.nanoTime();
                 if (getClient()!=null) {
-                    sendToOci(entries,level);
+                    sendToOci(targetLogId, batches);
                 } else {
-                    sendToStdout(entries,level);
+                    sendToFallback(targetLogId, batches);
                 }
-                messages.clear();
+                metrics.onRequestSent(messages.size(), estimatedBytes(), System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                if (sysoutTrace) sysoutTrace("Exception in send "+e.getClass()+" "+e.getMessage());
+                throw e;
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            breaker.onSuccess();
+            if (taken.compareAndSet(false, true)) {
+                settled(messages);
+            }
+            delivered(this);
+        }
+
+        @Override
+        public void onRetry(Exception error) {
+            metrics.retried.increment();
+            breaker.onFailure();
+        }
+
+        @Override
+        public void onGiveUp(Exception lastError) {
+            if (!taken.compareAndSet(false, true)) {
+                delivered(this); // cancelled by stop(): the messages are already spilled
+                return;
+            }
+            metrics.failed.increment();
+            if (RetryPolicy.isRetryable(lastError)) {
+                breaker.onFailure();
+                //the entries keep their ids, in the spill log too: a request that reached OCI before failing is not duplicated
+                spillOrRequeue(messages); 
+            } else {
+                //the log answered: the circuit is fine, but this request would be refused again
+                breaker.onSuccess();
+                metrics.rejected.add(messages.size());
+                settled(messages);
+                System.err.println("[OCI-APPENDER-ERROR] PutLogs to "+targetLogId+" rejected, "+messages.size()+" entries discarded: "+lastError.getMessage());
+            }
+            delivered(this);
+        }
 
-            } catch (Exception e) {
-                sysoutTrace("Exception in sendWithRetry "+e.getClass()+" "+e.getMessage());
-                attempt++;
-                try { 
-                    Thread.sleep(backoff); 
-                } catch (InterruptedException ignored) {}
-                backoff = Math.min(backoff * 2, 30000);
+        private long estimatedBytes() {
+            long bytes = PayloadSize.REQUEST_OVERHEAD + (long) PayloadSize.BATCH_OVERHEAD * batches.size();
+            for (LogMessage msg : messages) {
+                bytes += PayloadSize.ENTRY_OVERHEAD + msg.bytes;
             }
+            return bytes;
         }
-        return messages;
     }
 
-    private void sendToOci(List<LogEntry> entries, String level) {
-                LogEntryBatch batch = LogEntryBatch.builder()
-                        .entries(entries)
+    private void delivered(PutLogsDelivery delivery) {
+        pendingDeliveries.remove(delivery);
+        //stop() waits for any request of this appender to end
+        synchronized (pendingDeliveries) {
+            pendingDeliveries.notifyAll();
+        }
+    }
+
+    //waits until a request of this appender ends (the dispatcher may be busy with other appenders)
+    private void awaitDelivery(long timeoutNanos) throws InterruptedException {
+        synchronized (pendingDeliveries) {
+            if (!pendingDeliveries.isEmpty() && timeoutNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(pendingDeliveries, timeoutNanos);
+            }
+        }
+    }
+
+    private String groupKey(LogMessage msg) {
+        return groupKey(msg.level, msg.loggerName);
+    }
+
+    private String groupKey(String level, String loggerName) {
+        return batchKey == BatchKey.LOGGER ? level + "|" + loggerName : level;
+    }
+
+    //one LogEntryBatch per key, in order of first appearance; order within a key is preserved
+    private List<LogEntryBatch> toLogEntryBatches(List<LogMessage> messages) {
+        Map<String, List<LogEntry>> groups = new LinkedHashMap<>();
+        Map<String, LogMessage> firstOfGroup = new HashMap<>();
+        for (LogMessage msg : messages) {
+            String key = groupKey(msg);
+            List<LogEntry> entries = groups.get(key);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                groups.put(key, entries);
+                firstOfGroup.put(key, msg);
+            }
+            entries.add(LogEntry.builder()
+                        .id(msg.id())
+                        .time(new Date(msg.timestamp))
+                        .data(msg.message)
+                        .build()
+                       ); 
+        }
+        List<LogEntryBatch> batches = new ArrayList<>(groups.size());
+        for (Map.Entry<String, List<LogEntry>> group : groups.entrySet()) {
+            LogMessage first = firstOfGroup.get(group.getKey());
+            batches.add(LogEntryBatch.builder()
+                        .entries(group.getValue())
                         .source("log4j2-oci-async")
-                        .type(level)
-                        .subject("application")
-                        .build();
+                        .type(first.level)
+                        .subject(batchKey == BatchKey.LOGGER && first.loggerName != null ? first.loggerName : "application")
+                        .build());
+        }
+        return batches;
+    }
+
+    private String targetLogId(LogMessage msg) {
+        return msg.logId != null ? msg.logId : logId;
+    }
 
+    private void sendToOci(String logId, List<LogEntryBatch> batches) {
                 PutLogsDetails details = PutLogsDetails.builder()
                         .specversion("1.0")
-                        .logEntryBatches(Collections.singletonList(batch))
+                        .logEntryBatches(batches)
                         .build();
 
                 PutLogsRequest request = PutLogsRequest.builder()
@@ -335,53 +1504,193 @@ public class OciAsyncAppender extends AbstractAppender {
                         .build();
 
                 getClient().putLogs(request);
-                sysoutTrace("Sent "+level+" logs("+entries.size()+") to oci");
+                if (sysoutTrace) sysoutTrace("Sent logs("+batches.size()+" batches) to oci");
     }
 
-    private void sendToStdout(List<LogEntry> entries, String level) {
-        if (entries!=null&&!entries.isEmpty()) {
-            entries.forEach((le)->{System.out.println("stdout flush:"+le.getData());});
+    //no client: the request is written to the fallback sink (stdout by default)
+    private void sendToFallback(String targetLogId, List<LogEntryBatch> batches) {
+        try {
+            fallbackSink.write(targetLogId, batches);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     @Override public void start() { 
         sysoutTrace("Appender start() called"); 
         super.start(); 
+        if (jmx) {
+            registerMBean();
+        }
+        //the warm-up sends empty PutLogs requests to logId: nothing to warm up without a default log
+        if (warmUp && logId != null && lease != null && lease.claimWarmUp()) {
+            startWarmUp();
+        }
+        if (metricsBinder != null) {
+            try {
+                metricsBinder.bind(getName(), metrics);
+            } catch (RuntimeException e) {
+                System.err.println("[OCI-APPENDER-ERROR] metricsBinder failed: "+e.getMessage());
+            }
+        }
+    }
+
+    //once per shared client: a connection per sender, so the first flush skips token fetch and tls handshakes
+    private void startWarmUp() {
+        OciLoggingClient warmUpClient = getClient();
+        int connections = dispatcher.maxInFlightRequests();
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                warmUpClient.warmUp(logId, connections);
+                if (sysoutTrace) sysoutTrace("Warm-up done in "+TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start)+" ms, "+connections+" connections");
+            } catch (RuntimeException e) {
+                System.err.println("[OCI-APPENDER-WARN] warm-up of "+getName()+" failed: "+e+" (connections are opened by the first requests)");
+            }
+        }, "oci-log4j2-warmup-"+getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private AppenderMetrics newMetrics() {
+        return new AppenderMetrics(this::getQueueSize, this::circuitState, dispatcher::flusherUtilization);
+    }
+
+    private static MetricsBinder newMetricsBinder(String className) {
+        if (className == null || className.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return (MetricsBinder) Class.forName(className.trim()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create metricsBinder "+className, e);
+        }
+    }
+
+    private ObjectName mbeanName() throws MalformedObjectNameException {
+        return new ObjectName("com.oci.appender:type=OciAsyncAppender,name="+ObjectName.quote(getName()));
+    }
+
+    //a reconfigure starts the new appender before the old one stops: the newest one owns the name
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = mbeanName();
+            synchronized (MBEANS) {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(metrics, name);
+                MBEANS.put(name, metrics);
+            }
+        } catch (Exception e) {
+            System.err.println("[OCI-APPENDER-ERROR] cannot register the metrics mbean: "+e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = mbeanName();
+            synchronized (MBEANS) {
+                //only our own registration: the name may belong to the appender that replaced this one
+                if (MBEANS.get(name) == metrics) {
+                    MBEANS.remove(name);
+                    if (server.isRegistered(name)) {
+                        server.unregisterMBean(name);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[OCI-APPENDER-ERROR] cannot unregister the metrics mbean: "+e.getMessage());
+        }
     }
 
     @Override
     public boolean stop(long timeout, TimeUnit timeUnit) {
         sysoutTrace("Appender stop() called");
-        sysoutTrace("shutting down scheduler");
-        scheduler.shutdown();
+        setStopping();
+        sysoutTrace("stopping flusher");
         try {
-            try { 
-                scheduler.awaitTermination(5, TimeUnit.SECONDS); 
-            } catch (InterruptedException e) { 
-            }
-            sysoutTrace("scheduler stopped");
-            int failures=0;
-            int maxFailures=20;
-            while (!queue.isEmpty()&&failures<maxFailures) {
-                try {
-                    while (flushBatch()>0) {
-                    };
-                    Thread.sleep(3000);
-                } catch (Exception e) {
-                    failures++;
-                }
+            //the (possibly shared) flusher stops draining this appender, from here on only stop() does
+            dispatcher.unregister(flushSource);
+            sysoutTrace("flusher stopped");
+            //windows still open are closed now: their repeats are sent with the backlog
+            reportRepeats(Long.MAX_VALUE);
+            long budget = timeout > 0 ? timeUnit.toNanos(timeout) : TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+            //the last tenth (at most 1 sec) is left to spill what could not be sent
+            long deadline = System.nanoTime() + budget - Math.min(budget / 10, TimeUnit.SECONDS.toNanos(1));
+            drainUntil(deadline);
+            if (sysoutTrace) sysoutTrace("Final drain done: "+getQueueSize()+" messages left, "+pendingDeliveries.size()+" requests in flight");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //requests still outstanding at the deadline are taken back: their late outcome is ignored,
+            //so nothing is requeued after the spill log is closed
+            cancelDeliveries();
+            //the last appender of a shared dispatcher closes it with the client
+            boolean last = lease == null || SharedDispatchers.release(lease);
+            if (last) {
+                dispatcher.close();
             }
-            if (failures>=maxFailures) {
-                System.err.println("[OCI-APPENDER-ERROR]  too many failures: cannot flush "+queue.size()+"messages");
+            //everything left in memory is spilled
+            spillRemaining();
+            if (spill!=null) {
+                spill.close();
+            }
+            fallbackSink.close();
+            if (jmx) {
+                unregisterMBean();
+            }
+            if (metricsBinder != null) {
+                metricsBinder.unbind(getName());
+            }
+            if (last && getClient() != null) {
+                sysoutTrace("Closing client");
+                getClient().close();
+                sysoutTrace("Client closed");
             }
-        } finally {
-            sysoutTrace("Closing client");
-            getClient().close();
-            sysoutTrace("Client closed");
         }
         return super.stop(timeout,timeUnit);
     }
     
+    //stop(): the messages of the requests still in flight or waiting for a retry go back to the retry lane
+    private void cancelDeliveries() {
+        for (PutLogsDelivery delivery : pendingDeliveries) {
+            if (delivery.cancel()) {
+                requeueAtHead(delivery.messages);
+            }
+            //a retry waiting for its backoff gives up now and frees its slot for the other appenders
+            dispatcher.cancel(delivery);
+        }
+    }
+
+    //final drain: full requests on every free in flight slot until the backlog is sent or the deadline passes
+    private void drainUntil(long deadline) throws InterruptedException {
+        OciLoggingClient current = getClient();
+        if (current instanceof LazyClient && !((LazyClient) current).awaitReady(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return; // client never ready: everything is spilled
+        }
+        long left;
+        while ((!isMemoryEmpty()||hasParked()||!pendingDeliveries.isEmpty()) && (left = deadline - System.nanoTime()) > 0) {
+            int dispatched = flushBatch(true);
+            if (!pendingDeliveries.isEmpty()) {
+                if (dispatched == 0) {
+                    //a slot or the circuit frees when a request ends
+                    awaitDelivery(Math.min(left, TimeUnit.MILLISECONDS.toNanos(100)));
+                }
+            } else if (dispatched == 0) {
+                //nothing in flight and nothing sent: slots busy with other appenders, or the circuit is open
+                //(wait for it only if it closes in time)
+                long wait = dispatcher.hasFreeSlot() ? nextFlushDelay() : TimeUnit.MILLISECONDS.toNanos(10);
+                if (wait >= left) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        }
+    }
+
     private final OciLoggingClient getClient() {
         if (client!=null) return client;
         if (isTest) return testClient;
@@ -394,7 +1703,15 @@ public class OciAsyncAppender extends AbstractAppender {
 
     @VisibleForTesting 
     public int getQueueSize() { 
-        return queue.size(); 
+        return queue.size() + retryLane.size() + parkedMessages.get(); 
+    }
+    public AppenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    @VisibleForTesting 
+    public long getDroppedEvents() { 
+        return metrics.getEventsDropped(); 
     }
     @VisibleForTesting 
     public void setClientForTest(OciLoggingClient client) { 
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+/*
+ * What append() does when the ring is full (after the spill log, if configured, refused the event).
+ * Every rejected event is counted and reported by a single "N events dropped" entry.
+ */
+public enum OverflowPolicy {
+    //the new event is dropped (default, never blocks)
+    DROP_NEWEST,
+    //the flusher evicts the oldest queued event, the producer waits at most blockTimeoutMs for the slot
+    DROP_OLDEST,
+    //the producer waits at most blockTimeoutMs for a free slot, then drops
+    BLOCK,
+    //above 3/4 of the capacity only 1 event every sampleRate is queued
+    SAMPLE,
+    //above 9/10 of the capacity events below WARN are dropped, the rest is kept for WARN/ERROR/FATAL
+    LEVEL_PRIORITY
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Estimate of the PutLogs JSON payload, used to fill requests up to maxBatchBytes.
+ * Overheads are upper bounds of what the sdk adds around the data of an entry/batch/request;
+ * the data is measured as written in the JSON string: UTF-8 plus the escape sequences.
+ */
+final class PayloadSize {
+
+    //{"data":"","id":"<36 chars>","time":"2026-01-01T00:00:00.000Z"},
+    static final int ENTRY_OVERHEAD = 100;
+    //{"entries":[],"source":"log4j2-oci-async","type":"","subject":"","defaultlogentrytime":"..."},
+    static final int BATCH_OVERHEAD = 150;
+    //{"specversion":"1.0","logEntryBatches":[]}
+    static final int REQUEST_OVERHEAD = 64;
+
+    private PayloadSize() {
+    }
+
+    /** UTF-8 length without encoding */
+    static int utf8Length(CharSequence s) {
+        return length(s, false);
+    }
+
+    /** UTF-8 length once escaped in a JSON string: \" \\ \n \t \r \b \f take 2 bytes, other control characters 6 (unicode escape) */
+    static int jsonLength(CharSequence s) {
+        return length(s, true);
+    }
+
+    private static int length(CharSequence s, boolean json) {
+        int length = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += json ? 1 + escapeExtra(c) : 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /** jsonLength of UTF-8 encoded bytes: escaped characters are all ASCII */
+    static int jsonLength(byte[] utf8, int length) {
+        int escaped = length;
+        for (int i = 0; i < length; i++) {
+            escaped += escapeExtra((char) (utf8[i] & 0xFF));
+        }
+        return escaped;
+    }
+
+    //bytes added by the JSON escape of c
+    private static int escapeExtra(char c) {
+        if (c == '"' || c == '\\') {
+            return 1;
+        }
+        if (c >= 0x20) {
+            return 0;
+        }
+        return c == '\n' || c == '\t' || c == '\r' || c == '\b' || c == '\f' ? 1 : 5;
+    }
+
+    /** Splits s in chunks of at most maxBytes JSON encoded bytes (see jsonLength), never inside a surrogate pair */
+    static List<String> split(String s, int maxBytes) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        int bytes = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            int charBytes;
+            int chars = 1;
+            if (c < 0x80) {
+                charBytes = 1;
+            } else if (c < 0x800) {
+                charBytes = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                charBytes = 4;
+                chars = 2;
+            } else {
+                charBytes = 3;
+            }
+            charBytes += escapeExtra(c);
+            if (bytes + charBytes > maxBytes && i > start) {
+                chunks.add(s.substring(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += charBytes;
+            i += chars - 1;
+        }
+        chunks.add(s.substring(start));
+        return chunks;
+    }
+}
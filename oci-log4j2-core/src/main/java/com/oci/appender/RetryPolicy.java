@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import com.oracle.bmc.model.BmcException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Which failed PutLogs attempts are worth another try, and how long to wait before it.
+ * The backoff is exponential with jitter, so the retries of many senders (or many JVMs)
+ * hitting the same throttled service spread out instead of coming back together.
+ */
+final class RetryPolicy {
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    private RetryPolicy() {
+    }
+
+    /** 408, 429 and 5xx are retried, as errors without a status (timeouts, connection): other 4xx fail the same way again */
+    static boolean isRetryable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof BmcException) {
+                int status = ((BmcException) t).getStatusCode();
+                return status <= 0 || status == 408 || status == 429 || status >= 500;
+            }
+        }
+        return true;
+    }
+
+    /** Equal jitter: half of the exponential backoff is fixed, the other half is random */
+    static long backoffMillis(int attempt) {
+        long backoff = Math.min(INITIAL_BACKOFF_MS << Math.min(attempt, 16), MAX_BACKOFF_MS);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
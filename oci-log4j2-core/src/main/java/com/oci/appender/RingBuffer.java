@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/*
+ * Multi producer / single consumer ring of preallocated slots (LMAX Disruptor style).
+ * Producers claim a sequence with a CAS on the cursor, fill the slot and publish it.
+ * Only the flusher thread reads: peek() the oldest published slot, copy what it needs, consume().
+ */
+final class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final int mask;
+    //sequence published in every slot, -1 = never written
+    private final AtomicLongArray published;
+    //next sequence to claim (producers)
+    private final AtomicLong cursor = new AtomicLong(0);
+    //next sequence to read (consumer)
+    private final AtomicLong consumed = new AtomicLong(0);
+
+    RingBuffer(int capacity, Supplier<E> factory) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Object[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+            published.set(i, -1L);
+        }
+    }
+
+    /** @return the claimed sequence or -1 if the ring is full */
+    long tryClaim() {
+        long seq;
+        do {
+            seq = cursor.get();
+            if (seq - consumed.get() >= slots.length) {
+                return -1L;
+            }
+        } while (!cursor.compareAndSet(seq, seq + 1));
+        return seq;
+    }
+
+    @SuppressWarnings("unchecked")
+    E get(long sequence) {
+        return (E) slots[(int) (sequence & mask)];
+    }
+
+    void publish(long sequence) {
+        published.lazySet((int) (sequence & mask), sequence);
+    }
+
+    /** Consumer only: oldest published slot or null if the next one is not published yet */
+    @SuppressWarnings("unchecked")
+    E peek() {
+        long seq = consumed.get();
+        int index = (int) (seq & mask);
+        if (published.get(index) != seq) {
+            return null;
+        }
+        return (E) slots[index];
+    }
+
+    /** Consumer only: releases the slot returned by the last peek() to the producers */
+    void consume() {
+        consumed.lazySet(consumed.get() + 1);
+    }
+
+    int size() {
+        return (int) Math.max(0L, cursor.get() - consumed.get());
+    }
+
+    boolean isEmpty() {
+        return cursor.get() == consumed.get();
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oci.appender;
+
+import com.oci.client.OciLoggingClient;
+import com.oci.client.TransportConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/*
+ * Client and dispatcher shared by the appenders with the same credentials, region and sender settings:
+ * one LoggingClient (one connection pool), one sender pool and one flusher thread for all their logs.
+ * Each appender keeps its own queue and batches (one Source per logId); the flusher serves them in the same cycle.
+ * Reference counted: the last release closes dispatcher and client.
+ */
+final class SharedDispatchers {
+
+    static final class Lease {
+        final String key;
+        final OciLoggingClient client;
+        final LogDispatcher dispatcher;
+        private final AtomicBoolean warmUp = new AtomicBoolean();
+
+        private Lease(String key, OciLoggingClient client, LogDispatcher dispatcher) {
+            this.key = key;
+            this.client = client;
+            this.dispatcher = dispatcher;
+        }
+
+        /** @return true for the first appender only: it warms up the shared client */
+        boolean claimWarmUp() {
+            return warmUp.compareAndSet(false, true);
+        }
+    }
+
+    private static final class Entry {
+        final Lease lease;
+        int references;
+
+        Entry(Lease lease) {
+            this.lease = lease;
+        }
+    }
+
+    private static final Map<String, Entry> SHARED = new HashMap<>();
+
+    private SharedDispatchers() {
+    }
+
+    static String key(String configFile, String profile, String region, String endpoint, String compression, TransportConfig transport,
+                      int maxInFlightRequests, boolean preserveOrder, boolean virtualThreads) {
+        return (configFile == null ? "instance-principal" : configFile + "#" + profile) + "|" + region + "|" + endpoint + "|" + compression
+                + "|" + transport + "|" + maxInFlightRequests + "|" + preserveOrder + "|" + virtualThreads;
+    }
+
+    /** Returns the lease of key, creating client and dispatcher for the first appender */
+    static synchronized Lease acquire(String key, Supplier<OciLoggingClient> client, Supplier<LogDispatcher> dispatcher) {
+        Entry entry = SHARED.get(key);
+        if (entry == null) {
+            entry = new Entry(new Lease(key, client.get(), dispatcher.get()));
+            SHARED.put(key, entry);
+        }
+        entry.references++;
+        return entry.lease;
+    }
+
+    /** @return true if this was the last reference: the caller closes dispatcher and client */
+    static synchronized boolean release(Lease lease) {
+        Entry entry = SHARED.get(lease.key);
+        if (entry == null || entry.lease != lease) {
+            return false;
+        }
+        if (--entry.references > 0) {
+            return false;
+        }
+        SHARED.remove(lease.key);
+        return true;
+    }
+
+    static synchronized int references(String key) {
+        Entry entry = SHARED.get(key);
+        return entry == null ? 0 : entry.references;
+    }
+}
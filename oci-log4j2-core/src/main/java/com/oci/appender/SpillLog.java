@@ -0,0 +1,322 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/*
+ * Append only on-disk log of messages that could not stay in memory (ring full, circuit open, shutdown).
+ * Fixed size memory mapped segments "segment-<n>.spill" hold records
+ *   [int length][long timestamp][int+bytes level][int+bytes logger][int+bytes message][int+bytes logId][int+bytes id]
+ * the length is written last, so a zero length marks the end of the written data.
+ * The LogEntry id is kept so a replayed entry is sent with the id of its first attempt
+ * (records written before the id was stored end after the logId and get a new one).
+ * poll() returns the records with their end position (segment * segmentSize + offset); the caller commits it
+ * once they are delivered. The oldest uncommitted position is checkpointed in a mapped "checkpoint" file:
+ * after a restart the log is replayed from there, so records read but not delivered are read again.
+ */
+final class SpillLog {
+
+    static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spill";
+
+    static final class Record {
+        final String level;
+        final String loggerName;
+        final long timestamp;
+        final String message;
+        //null = default logId of the appender
+        final String logId;
+        //LogEntry id, null = not stored
+        final String id;
+
+        Record(String level, String loggerName, long timestamp, String message, String logId, String id) {
+            this.level = level;
+            this.loggerName = loggerName;
+            this.timestamp = timestamp;
+            this.message = message;
+            this.logId = logId;
+            this.id = id;
+        }
+    }
+
+    //records returned by poll() and the position to commit once they are delivered
+    static final class Batch {
+        final List<Record> records;
+        final long position;
+
+        Batch(List<Record> records, long position) {
+            this.records = records;
+            this.position = position;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final MappedByteBuffer checkpoint;
+    //open segments by index, from the read segment to the write segment
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long writeSegment;
+    private int writeOffset;
+    private long readSegment;
+    private int readOffset;
+    //polled batches not committed yet: end position -> start position
+    private final TreeMap<Long, Long> uncommitted = new TreeMap<>();
+    //segments before this one are delivered and deleted
+    private long committedSegment;
+    //late give ups of a shared dispatcher can arrive after close()
+    private boolean closed;
+
+    SpillLog(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, DEFAULT_SEGMENT_SIZE);
+    }
+
+    SpillLog(Path directory, long maxBytes, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = Math.max(maxBytes, segmentSize);
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+        recover();
+    }
+
+    private void recover() throws IOException {
+        List<Long> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                existing.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        existing.sort(null);
+        long position = checkpoint.getLong(0);
+        readSegment = position / segmentSize;
+        readOffset = (int) (position % segmentSize);
+        committedSegment = readSegment;
+        if (existing.isEmpty() || existing.get(existing.size() - 1) < readSegment) {
+            //nothing left to replay
+            for (long index : existing) {
+                Files.deleteIfExists(segmentPath(index));
+            }
+            writeSegment = readSegment;
+            writeOffset = readOffset;
+            segments.put(writeSegment, map(writeSegment));
+            return;
+        }
+        for (long index : existing) {
+            if (index < readSegment) {
+                Files.deleteIfExists(segmentPath(index));
+            } else {
+                segments.put(index, map(index));
+            }
+        }
+        if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+            committedSegment = readSegment;
+        }
+        //the write position is the end of the data of the last segment
+        writeSegment = segments.lastKey();
+        MappedByteBuffer last = segments.get(writeSegment);
+        int offset = writeSegment == readSegment ? readOffset : 0;
+        while (offset + Integer.BYTES <= segmentSize) {
+            int length = last.getInt(offset);
+            if (length <= 0 || offset + Integer.BYTES + length > segmentSize) {
+                break;
+            }
+            offset += Integer.BYTES + length;
+        }
+        writeOffset = offset;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /** @return false if the log is full or the record cannot be written */
+    synchronized boolean append(String level, String loggerName, long timestamp, String message, String logId, String id) {
+        if (closed) {
+            return false;
+        }
+        byte[] levelBytes = bytes(level);
+        byte[] loggerBytes = bytes(loggerName);
+        byte[] messageBytes = bytes(message);
+        byte[] logIdBytes = bytes(logId);
+        byte[] idBytes = bytes(id);
+        int fixed = Long.BYTES + 5 * Integer.BYTES + levelBytes.length + loggerBytes.length + logIdBytes.length + idBytes.length;
+        int maxMessage = segmentSize - Integer.BYTES - fixed;
+        if (maxMessage <= 0) {
+            return false;
+        }
+        int messageLength = Math.min(messageBytes.length, maxMessage);
+        int length = fixed + messageLength;
+        try {
+            if (writeOffset + Integer.BYTES + length > segmentSize) {
+                //segments read but not committed still count
+                if ((writeSegment + 2 - committedSegment) * (long) segmentSize > maxBytes) {
+                    return false;
+                }
+                writeSegment++;
+                writeOffset = 0;
+                segments.put(writeSegment, map(writeSegment));
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        MappedByteBuffer segment = segments.get(writeSegment);
+        int position = writeOffset + Integer.BYTES;
+        segment.putLong(position, timestamp);
+        position += Long.BYTES;
+        position = put(segment, position, levelBytes, levelBytes.length);
+        position = put(segment, position, loggerBytes, loggerBytes.length);
+        position = put(segment, position, messageBytes, messageLength);
+        position = put(segment, position, logIdBytes, logIdBytes.length);
+        put(segment, position, idBytes, idBytes.length);
+        //length last: a partially written record is never read
+        segment.putInt(writeOffset, length);
+        writeOffset += Integer.BYTES + length;
+        return true;
+    }
+
+    /** Reads up to maxRecords records, the read position is checkpointed by commit(batch.position) */
+    synchronized Batch poll(int maxRecords) {
+        List<Record> records = new ArrayList<>();
+        long start = position();
+        while (!closed && records.size() < maxRecords) {
+            if (readSegment == writeSegment && readOffset >= writeOffset) {
+                break;
+            }
+            MappedByteBuffer segment = segments.get(readSegment);
+            int length = readOffset + Integer.BYTES <= segmentSize ? segment.getInt(readOffset) : 0;
+            if (length <= 0) {
+                //end of a full segment: move to the next one, the file is deleted once committed
+                if (readSegment == writeSegment) {
+                    break;
+                }
+                segments.remove(readSegment);
+                readSegment++;
+                readOffset = 0;
+                continue;
+            }
+            int position = readOffset + Integer.BYTES;
+            long timestamp = segment.getLong(position);
+            position += Long.BYTES;
+            String level = get(segment, position);
+            position += Integer.BYTES + segment.getInt(position);
+            String loggerName = get(segment, position);
+            position += Integer.BYTES + segment.getInt(position);
+            String message = get(segment, position);
+            position += Integer.BYTES + segment.getInt(position);
+            String logId = get(segment, position);
+            position += Integer.BYTES + segment.getInt(position);
+            String id = position < readOffset + Integer.BYTES + length ? get(segment, position) : "";
+            records.add(new Record(level, loggerName.isEmpty() ? null : loggerName, timestamp, message, logId.isEmpty() ? null : logId,
+                                   id.isEmpty() ? null : id));
+            readOffset += Integer.BYTES + length;
+        }
+        long end = position();
+        if (!closed && !records.isEmpty()) {
+            uncommitted.put(end, start);
+        } else if (!closed && uncommitted.isEmpty()) {
+            checkpoint(end); // only the end of a segment was skipped
+        }
+        return new Batch(records, end);
+    }
+
+    /**
+     * The records of the poll() that returned this position are delivered (or saved elsewhere).
+     * The checkpoint moves up to the oldest batch still uncommitted.
+     */
+    synchronized void commit(long position) {
+        if (closed || uncommitted.remove(position) == null) {
+            return;
+        }
+        checkpoint(uncommitted.isEmpty() ? position() : uncommitted.firstEntry().getValue());
+    }
+
+    private void checkpoint(long committed) {
+        if (committed <= checkpoint.getLong(0)) {
+            return;
+        }
+        checkpoint.putLong(0, committed);
+        long segment = committed / segmentSize;
+        for (; committedSegment < segment; committedSegment++) {
+            try {
+                Files.deleteIfExists(segmentPath(committedSegment));
+            } catch (IOException ignored) {
+                //still mapped on some platforms, removed at the next restart
+            }
+        }
+    }
+
+    private long position() {
+        return readSegment * segmentSize + readOffset;
+    }
+
+    synchronized boolean isEmpty() {
+        return closed || (readSegment == writeSegment && readOffset >= writeOffset);
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        checkpoint.force();
+        segments.values().forEach(MappedByteBuffer::force);
+        segments.clear();
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int put(MappedByteBuffer segment, int position, byte[] bytes, int length) {
+        segment.putInt(position, length);
+        segment.put(position + Integer.BYTES, bytes, 0, length);
+        return position + Integer.BYTES + length;
+    }
+
+    private static String get(MappedByteBuffer segment, int position) {
+        int length = segment.getInt(position);
+        byte[] bytes = new byte[length];
+        segment.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
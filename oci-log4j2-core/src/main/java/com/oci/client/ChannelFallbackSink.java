@@ -0,0 +1,109 @@
+package com.oci.client;
+
+import com.oracle.bmc.loggingingestion.model.LogEntry;
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Fallback sink writing one line per entry (LogEntry.data) on stdout, stderr or a file.
+ * A whole request is encoded into reusable direct buffers and written by a single gathering write,
+ * instead of a synchronized and flushed println per line. The buffers grow to the biggest request
+ * seen (at most maxBatchBytes) and are kept.
+ */
+public class ChannelFallbackSink implements FallbackSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final GatheringByteChannel channel;
+    //stdout and stderr stay open
+    private final boolean closeChannel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer[] buffers = { ByteBuffer.allocateDirect(BUFFER_SIZE) };
+
+    public ChannelFallbackSink(GatheringByteChannel channel, boolean closeChannel) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+    }
+
+    public static ChannelFallbackSink stdout() {
+        return new ChannelFallbackSink(new FileOutputStream(FileDescriptor.out).getChannel(), false);
+    }
+
+    public static ChannelFallbackSink stderr() {
+        return new ChannelFallbackSink(new FileOutputStream(FileDescriptor.err).getChannel(), false);
+    }
+
+    public static ChannelFallbackSink open(Path file) throws IOException {
+        return new ChannelFallbackSink(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.APPEND), true);
+    }
+
+    @Override
+    public synchronized void write(String logId, List<LogEntryBatch> batches) throws IOException {
+        buffers[0].clear();
+        int last = 0;
+        for (LogEntryBatch batch : batches) {
+            for (LogEntry entry : batch.getEntries()) {
+                String data = entry.getData();
+                if (data == null) {
+                    continue;
+                }
+                last = encode(data, last);
+                if (!data.endsWith("\n")) {
+                    last = encode("\n", last);
+                }
+            }
+        }
+        long remaining = 0;
+        for (int i = 0; i <= last; i++) {
+            buffers[i].flip();
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers, 0, last + 1);
+        }
+    }
+
+    //encodes text from buffers[last], moving to the next buffer when full: returns the last buffer used
+    private int encode(CharSequence text, int last) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(chars, buffers[last], true).isOverflow()) {
+            last++;
+            if (last == buffers.length) {
+                buffers = Arrays.copyOf(buffers, buffers.length + 1);
+                buffers[last] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            buffers[last].clear();
+        }
+        return last;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closeChannel) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[OCI-APPENDER-ERROR] cannot close fallback sink: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.oci.client;
+
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/*
+ * Local destination of the entries that do not go to OCI: no client (tests, local runs) or,
+ * with fallbackOnOpenCircuit, the requests of a log whose circuit breaker is open.
+ * write() is called by the flusher and by the sender threads, implementations must be thread safe.
+ * Custom sinks are loaded by class name, with a public no-args constructor.
+ */
+public interface FallbackSink {
+
+    /** Writes the entries of one request, batch by batch */
+    void write(String logId, List<LogEntryBatch> batches) throws IOException;
+
+    void close();
+
+    /** "stdout" (or empty), "stderr", "file:<path>" (appended), or the class name of a custom sink */
+    static FallbackSink forName(String name) {
+        if (name == null || name.trim().isEmpty() || "stdout".equalsIgnoreCase(name.trim())) {
+            return ChannelFallbackSink.stdout();
+        }
+        if ("stderr".equalsIgnoreCase(name.trim())) {
+            return ChannelFallbackSink.stderr();
+        }
+        if (name.trim().startsWith("file:")) {
+            try {
+                return ChannelFallbackSink.open(Paths.get(name.trim().substring("file:".length())));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot open fallback file: " + name, e);
+            }
+        }
+        try {
+            return (FallbackSink) Class.forName(name.trim()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown fallback sink: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.oci.client;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * gzip (RFC 1952) written by hand around a raw Deflater, so the Deflater is reset and reused
+ * instead of allocating a GZIPOutputStream (and its native zlib stream) per request.
+ * Deflaters are pooled, not kept per thread: virtual sender threads live for one request.
+ * At most maxIdle are kept (the requests in flight), the others are ended when returned.
+ */
+public final class GzipCodec implements PayloadCodec {
+
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final int level;
+    private final BlockingQueue<Deflater> idle;
+
+    public GzipCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    public GzipCodec(int level) {
+        this(level, 1);
+    }
+
+    /** @param maxIdle deflaters kept between requests, usually the max requests in flight */
+    public GzipCodec(int level, int maxIdle) {
+        this.level = level;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    @Override
+    public String contentEncoding() {
+        return "gzip";
+    }
+
+    @Override
+    public void encode(byte[] src, int length, PayloadBuffer out) throws IOException {
+        Deflater d = idle.poll();
+        if (d == null) {
+            d = new Deflater(level, true);
+        }
+        try {
+            deflate(d, src, length, out);
+        } finally {
+            d.reset();
+            if (!idle.offer(d)) {
+                d.end(); // more requests than maxIdle at once: release the native zlib stream now
+            }
+        }
+    }
+
+    private static void deflate(Deflater d, byte[] src, int length, PayloadBuffer out) {
+        CRC32 checksum = new CRC32();
+        checksum.update(src, 0, length);
+
+        out.write(HEADER, 0, HEADER.length);
+        d.setInput(src, 0, length);
+        d.finish();
+        while (!d.finished()) {
+            //compressed log text is rarely larger than 1/2 of the input
+            int room = Math.max(length / 2, 512);
+            byte[] buf = out.ensureCapacity(room);
+            out.advance(d.deflate(buf, out.size(), room));
+        }
+        writeIntLE(out, (int) checksum.getValue());
+        writeIntLE(out, length);
+    }
+
+    @Override
+    public void close() {
+        Deflater d;
+        while ((d = idle.poll()) != null) {
+            d.end();
+        }
+    }
+
+    private static void writeIntLE(PayloadBuffer out, int v) {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        out.write((v >>> 16) & 0xff);
+        out.write((v >>> 24) & 0xff);
+    }
+}
@@ -6,4 +6,14 @@ import com.oracle.bmc.loggingingestion.responses.PutLogsResponse;
 public interface OciLoggingClient { 
     public PutLogsResponse putLogs(PutLogsRequest request); 
     public void close();
+
+    /**
+     * Prepares credentials and connections before the first request (auth token, request signer,
+     * tcp/tls handshakes), so the first flush does not pay for them. Errors are left to the caller.
+     * The connections are opened by empty PutLogs requests (no entries) to logId.
+     * @param logId log of the warm-up requests, null = credentials only
+     * @param connections connections to open
+     */
+    public default void warmUp(String logId, int connections) {
+    }
 }
\ No newline at end of file
@@ -1,25 +1,196 @@
 package com.oci.client;
 
+import com.oracle.bmc.ClientConfiguration;
 import com.oracle.bmc.loggingingestion.LoggingClient;
+import com.oracle.bmc.loggingingestion.model.PutLogsDetails;
 import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
 import com.oracle.bmc.loggingingestion.responses.PutLogsResponse;
+import com.oracle.bmc.Region;
 import com.oracle.bmc.auth.AbstractAuthenticationDetailsProvider;
+import com.oracle.bmc.auth.BasicAuthenticationDetailsProvider;
+import com.oracle.bmc.http.client.Serialization;
+import com.oracle.bmc.http.client.jersey3.ApacheClientProperties;
+import com.oracle.bmc.http.client.jersey3.Jersey3ClientProperties;
+import com.oracle.bmc.model.BmcException;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 
 public class OciLoggingClientImpl implements OciLoggingClient { 
+    //lower priority runs first: the body must be replaced before the request signer hashes it
+    private static final int COMPRESSION_PRIORITY = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    //pooled connections idle for longer are checked before being reused
+    private static final int STALE_CHECK_MS = 2000;
+
     private final LoggingClient client; 
+    private final AbstractAuthenticationDetailsProvider provider;
+    private final PayloadCodec codec;
+    //buffers of the requests in flight, pooled rather than per thread (virtual sender threads live for one request)
+    private final BlockingQueue<Buffers> buffers;
+    //body of the putLogs call in progress on this thread, picked up by the interceptor
+    private final ThreadLocal<PayloadBuffer> pending = new ThreadLocal<>();
+
     public OciLoggingClientImpl(AbstractAuthenticationDetailsProvider provider) {
-        this.client = LoggingClient.builder().build(provider);   
+        this(provider, null, null);
+    } 
+
+    public OciLoggingClientImpl(AbstractAuthenticationDetailsProvider provider, String region, PayloadCodec codec) {
+        this(provider, region, null, codec);
+    } 
+
+    /**
+     * @param region region id (e.g. eu-frankfurt-1), null = region of the provider
+     * @param endpoint Logging Ingestion endpoint (e.g. a private endpoint or a local stub), null = the one of the region
+     * @param codec compression of the request body, null = uncompressed
+     */
+    public OciLoggingClientImpl(AbstractAuthenticationDetailsProvider provider, String region, String endpoint, PayloadCodec codec) {
+        this(provider, region, endpoint, codec, TransportConfig.DEFAULT);
+    } 
+
+    /**
+     * @param region region id (e.g. eu-frankfurt-1), null = region of the provider
+     * @param endpoint Logging Ingestion endpoint (e.g. a private endpoint or a local stub), null = the one of the region
+     * @param codec compression of the request body, null = uncompressed
+     * @param transport connector, connection pool and timeouts
+     */
+    public OciLoggingClientImpl(AbstractAuthenticationDetailsProvider provider, String region, String endpoint, PayloadCodec codec,
+                                TransportConfig transport) {
+        this.provider = provider;
+        this.codec = codec;
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, transport.getMaxConnections()));
+        LoggingClient.Builder builder = LoggingClient.builder();
+        builder.configuration(ClientConfiguration.builder()
+                .connectionTimeoutMillis(transport.getConnectTimeoutMs())
+                .readTimeoutMillis(transport.getReadTimeoutMs())
+                .build());
+        if (region != null && !region.trim().isEmpty()) {
+            builder.region(Region.fromRegionId(region.trim()));
+        }
+        if (endpoint != null && !endpoint.trim().isEmpty()) {
+            builder.endpoint(endpoint.trim());
+        }
+        builder.additionalClientConfigurator(httpClient -> {
+            if (transport.getConnector() == TransportConfig.Connector.APACHE) {
+                //one pooled connection per sender, kept open between requests (closed by the client)
+                PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(transport.getKeepAliveMs(), TimeUnit.MILLISECONDS);
+                pool.setMaxTotal(transport.getMaxConnections());
+                pool.setDefaultMaxPerRoute(transport.getMaxConnections());
+                pool.setValidateAfterInactivity(STALE_CHECK_MS);
+                httpClient.property(ApacheClientProperties.CONNECTION_MANAGER, pool);
+            } else {
+                httpClient.property(Jersey3ClientProperties.USE_APACHE_CONNECTOR, false);
+            }
+            if (codec != null) {
+                httpClient.registerRequestInterceptor(COMPRESSION_PRIORITY, request -> {
+                    PayloadBuffer body = pending.get();
+                    if (body != null) {
+                        request.header("Content-Encoding", codec.contentEncoding());
+                        request.body(body.asInputStream(), body.size());
+                    }
+                });
+            }
+        });
+        this.client = builder.build(provider);   
     } 
 
     @Override 
     public PutLogsResponse putLogs(PutLogsRequest request) { 
-        return client.putLogs(request); 
+        if (codec == null) {
+            return client.putLogs(request); 
+        }
+        Buffers pooled = buffers.poll();
+        if (pooled == null) {
+            pooled = new Buffers();
+        }
+        try {
+            pending.set(encode(request, pooled));
+            return client.putLogs(request); 
+        } finally {
+            pending.remove();
+            buffers.offer(pooled); // dropped if the pool is full
+        }
+    }
+
+    @Override
+    public void warmUp(String logId, int connections) {
+        //instance/resource principals fetch their security token on the first getKeyId(), the signer reads the key
+        if (provider instanceof BasicAuthenticationDetailsProvider) {
+            ((BasicAuthenticationDetailsProvider) provider).getKeyId();
+        }
+        if (logId == null) {
+            return; // no log to send the empty requests to
+        }
+        //the first request opens a connection, the other ones run together to open one connection each
+        emptyPutLogs(logId);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i < connections; i++) {
+            Thread thread = new Thread(() -> emptyPutLogs(logId), "oci-log4j2-warmup-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //a request without entries: whatever the service answers, the connection stays in the pool
+    private void emptyPutLogs(String logId) {
+        try {
+            putLogs(PutLogsRequest.builder()
+                    .logId(logId)
+                    .putLogsDetails(PutLogsDetails.builder()
+                            .specversion("1.0")
+                            .logEntryBatches(Collections.emptyList())
+                            .build())
+                    .build());
+        } catch (BmcException e) {
+            if (e.getStatusCode() <= 0) {
+                throw e; // no http response: endpoint or credentials not reachable
+            }
+        }
+    }
+
+    //serialized json and compressed body of one request
+    private static final class Buffers {
+        final PayloadBuffer json = new PayloadBuffer(BUFFER_SIZE);
+        final PayloadBuffer encoded = new PayloadBuffer(BUFFER_SIZE);
+    }
+
+    //serializes and compresses the body on the calling thread, reusing pooled buffers
+    private PayloadBuffer encode(PutLogsRequest request, Buffers pooled) {
+        PayloadBuffer raw = pooled.json;
+        PayloadBuffer body = pooled.encoded;
+        raw.recycle(BUFFER_SIZE);
+        body.recycle(BUFFER_SIZE);
+        try {
+            Serialization.getObjectMapper().writeValue(raw, request.getPutLogsDetails());
+            codec.encode(raw.array(), raw.size(), body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body;
     }
 
     @Override
     public void close() {
        client.close();
+       if (codec != null) {
+           codec.close();
+       }
     }
-}
\ No newline at end of file
+}
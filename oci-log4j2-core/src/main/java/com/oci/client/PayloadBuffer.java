@@ -0,0 +1,46 @@
+package com.oci.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/*
+ * Reusable output buffer: the content is read in place, without the copy of toByteArray().
+ */
+public final class PayloadBuffer extends ByteArrayOutputStream {
+
+    //buffers grown over this size are not kept between requests
+    private static final int MAX_RETAINED = 4 * 1024 * 1024;
+
+    public PayloadBuffer(int size) {
+        super(size);
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    /** Makes room for n more bytes and returns the array to write into, from size() */
+    public byte[] ensureCapacity(int n) {
+        if (count + n > buf.length) {
+            buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+        }
+        return buf;
+    }
+
+    public void advance(int n) {
+        count += n;
+    }
+
+    public InputStream asInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /** reset() that also releases a buffer grown by an unusually large request */
+    public void recycle(int initialSize) {
+        if (buf.length > MAX_RETAINED) {
+            buf = new byte[initialSize];
+        }
+        reset();
+    }
+}
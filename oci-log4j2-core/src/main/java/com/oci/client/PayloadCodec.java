@@ -0,0 +1,44 @@
+package com.oci.client;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/*
+ * Compression of the serialized PutLogs body.
+ * encode() runs on the thread calling putLogs (the appender sender threads, virtual ones too):
+ * implementations must be thread safe and should pool their state (Deflater, buffers) rather than
+ * keep it per thread. close() releases it when the client is closed.
+ * Custom codecs are loaded by class name, with a public no-args constructor.
+ */
+public interface PayloadCodec {
+
+    /** Value of the Content-Encoding header */
+    String contentEncoding();
+
+    /** Compresses src[0, length) into out, which is reset by the caller */
+    void encode(byte[] src, int length, PayloadBuffer out) throws IOException;
+
+    /** Releases the native resources of the codec, called once by the client */
+    default void close() {
+    }
+
+    /** "none" (or empty) = no compression, "gzip", or the class name of a custom codec */
+    static PayloadCodec forName(String name) {
+        return forName(name, 1);
+    }
+
+    /** As forName(name), maxConcurrency = max encode() calls at once (state kept by the built-in codecs) */
+    static PayloadCodec forName(String name, int maxConcurrency) {
+        if (name == null || name.trim().isEmpty() || "none".equalsIgnoreCase(name.trim())) {
+            return null;
+        }
+        if ("gzip".equalsIgnoreCase(name.trim())) {
+            return new GzipCodec(Deflater.BEST_SPEED, maxConcurrency);
+        }
+        try {
+            return (PayloadCodec) Class.forName(name.trim()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown compression codec: " + name, e);
+        }
+    }
+}
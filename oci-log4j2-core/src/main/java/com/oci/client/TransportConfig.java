@@ -0,0 +1,65 @@
+package com.oci.client;
+
+/*
+ * Http transport of the LoggingClient: connection pool, keep-alive, timeouts and Jersey connector.
+ * The pool is sized on the PutLogs requests in flight, so every sender keeps its own open connection.
+ */
+public final class TransportConfig {
+
+    public enum Connector {
+        APACHE, //Apache HttpClient connector with a pool of maxConnections connections (sdk default connector)
+        JDK //Jersey HttpURLConnection connector, keep-alive handled by the JDK (http.keepAlive, http.maxConnections)
+    }
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+    public static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 55000;
+
+    public static final TransportConfig DEFAULT = new TransportConfig(Connector.APACHE, 1, DEFAULT_KEEP_ALIVE_MS,
+                                                                      DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS);
+
+    private final Connector connector;
+    private final int maxConnections;
+    private final long keepAliveMs;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    /**
+     * @param maxConnections pooled connections (APACHE), usually the PutLogs requests in flight
+     * @param keepAliveMs max lifetime of a pooled connection, <= 0 = no limit (APACHE)
+     * @param connectTimeoutMs timeout of the tcp/tls connection of a request
+     * @param readTimeoutMs max wait for the response of a request
+     */
+    public TransportConfig(Connector connector, int maxConnections, long keepAliveMs, int connectTimeoutMs, int readTimeoutMs) {
+        this.connector = connector == null ? Connector.APACHE : connector;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.keepAliveMs = keepAliveMs;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public Connector getConnector() {
+        return connector;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public long getKeepAliveMs() {
+        return keepAliveMs;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    @Override
+    public String toString() {
+        return connector + "/" + maxConnections + "/" + keepAliveMs + "/" + connectTimeoutMs + "/" + readTimeoutMs;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+    private static AppenderMetrics metrics() {
+        return new AppenderMetrics(() -> 0L, () -> "CLOSED", () -> 0.0);
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        AppenderMetrics metrics = metrics();
+        CircuitBreaker breaker = new CircuitBreaker(metrics);
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure();
+        }
+        //a success resets the count
+        breaker.onSuccess();
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure();
+        }
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertFalse(breaker.tryAcquire());
+        Assertions.assertTrue(breaker.waitMillis() > 0);
+        Assertions.assertEquals(1, metrics.getCircuitOpenCount());
+    }
+
+    @Test
+    void testSingleProbe() throws Exception {
+        AppenderMetrics metrics = metrics();
+        CircuitBreaker breaker = new CircuitBreaker(metrics, 50);
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure();
+        }
+        Thread.sleep(100);
+        Assertions.assertEquals(0, breaker.waitMillis());
+        //only one request goes through while half open
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire());
+        Assertions.assertEquals(Long.MAX_VALUE, breaker.waitMillis());
+
+        //the failed probe opens the circuit again at once
+        breaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Thread.sleep(100);
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        Assertions.assertEquals(2, metrics.getCircuitOpenCount());
+        Assertions.assertTrue(metrics.getCircuitOpenMillis() >= 100);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class EntryIdsTest {
+
+    @Test
+    void testFormat() {
+        EntryIds ids = new EntryIds(0x0123456789abcdefL);
+        Assertions.assertEquals("0123456789abcdef-000000000000", ids.nextId());
+        Assertions.assertEquals("0123456789abcdef-000000000001", ids.nextId());
+        Assertions.assertEquals("0123456789abcdef-0000000000ff", ids.format(255));
+    }
+
+    @Test
+    void testUniqueAndOrdered() throws Exception {
+        EntryIds ids = new EntryIds();
+        Set<String> seen = new HashSet<>();
+        String previous = "";
+        for (int i = 0; i < 10000; i++) {
+            String id = ids.nextId();
+            Assertions.assertTrue(seen.add(id));
+            Assertions.assertTrue(id.compareTo(previous) > 0);
+            previous = id;
+        }
+        //another appender has another prefix
+        Assertions.assertNotEquals(previous.substring(0, 16), new EntryIds().nextId().substring(0, 16));
+    }
+}
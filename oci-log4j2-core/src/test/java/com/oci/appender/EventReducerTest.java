@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EventReducerTest {
+
+    //Log4jLogEvent takes the current time for 0
+    private static final long T0 = 1_000_000L;
+
+    private static AppenderMetrics metrics() {
+        return new AppenderMetrics(() -> 0L, () -> "CLOSED", () -> 0.0);
+    }
+
+    private static LogEvent event(Level level, String logger, long time, String format, Object... params) {
+        return Log4jLogEvent.newBuilder()
+                .setLevel(level)
+                .setLoggerName(logger)
+                .setTimeMillis(T0 + time)
+                .setMessage(new ParameterizedMessage(format, params))
+                .build();
+    }
+
+    @Test
+    void testDisabled() {
+        Assertions.assertNull(EventReducer.create(null, 0, null, metrics()));
+        Assertions.assertNull(EventReducer.create(" ", 0, null, metrics()));
+    }
+
+    @Test
+    void testRepeatsCollapsed() {
+        AppenderMetrics metrics = metrics();
+        EventReducer reducer = EventReducer.create(null, 1000, e -> "ocid1.log.oc1..audit", metrics);
+        Assertions.assertTrue(reducer.accept(event(Level.ERROR, "db", 0, "Connection to {} failed", "host1")));
+        //same template, other arguments: repeats of the first one
+        for (int i = 0; i < 99; i++) {
+            Assertions.assertFalse(reducer.accept(event(Level.ERROR, "db", 10 + i, "Connection to {} failed", "host" + i)));
+        }
+        //other level, logger or template
+        Assertions.assertTrue(reducer.accept(event(Level.WARN, "db", 10, "Connection to {} failed", "host1")));
+        Assertions.assertTrue(reducer.accept(event(Level.ERROR, "web", 10, "Connection to {} failed", "host1")));
+        Assertions.assertTrue(reducer.accept(event(Level.ERROR, "db", 10, "Query {} failed", "q1")));
+        Assertions.assertEquals(99, metrics.getEventsCollapsed());
+
+        List<String> reports = new ArrayList<>();
+        EventReducer.RepeatSink sink = (level, logger, template, logId, repeats) ->
+                reports.add(level + " " + logger + " " + template + " " + logId + " " + repeats);
+        //window still open
+        Assertions.assertTrue(reducer.nextSweepDelay(T0 + 500) < Long.MAX_VALUE);
+        reducer.sweep(T0 + 500, sink);
+        Assertions.assertTrue(reports.isEmpty());
+        //window ended: one report, a new window starts with the next event
+        reducer.sweep(T0 + 1500, sink);
+        Assertions.assertEquals(1, reports.size());
+        Assertions.assertEquals("ERROR db Connection to {} failed ocid1.log.oc1..audit 99", reports.get(0));
+        Assertions.assertEquals(Long.MAX_VALUE, reducer.nextSweepDelay(T0 + 1500));
+        Assertions.assertTrue(reducer.accept(event(Level.ERROR, "db", 1600, "Connection to {} failed", "host1")));
+    }
+
+    @Test
+    void testConcurrentSweepReportsEveryRepeat() throws Exception {
+        AppenderMetrics metrics = metrics();
+        EventReducer reducer = EventReducer.create(null, 1, null, metrics);
+        AtomicLong reported = new AtomicLong();
+        EventReducer.RepeatSink sink = (level, logger, template, logId, repeats) -> reported.addAndGet(repeats);
+        //windows of 1 ms on the current time: the sweep closes them while the producers are counting repeats
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    reducer.accept(Log4jLogEvent.newBuilder()
+                            .setLevel(Level.ERROR)
+                            .setLoggerName("db")
+                            .setMessage(new ParameterizedMessage("Connection to {} failed", i % 2 == 0 ? "host1" : "host2"))
+                            .build());
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        while (producers.stream().anyMatch(Thread::isAlive)) {
+            reducer.sweep(System.currentTimeMillis(), sink);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        reducer.sweep(Long.MAX_VALUE, sink);
+
+        Assertions.assertTrue(metrics.getEventsCollapsed() > 0);
+        Assertions.assertEquals(metrics.getEventsCollapsed(), reported.get());
+    }
+
+    @Test
+    void testRateLimits() {
+        AppenderMetrics metrics = metrics();
+        EventReducer reducer = EventReducer.create("DEBUG=100, INFO=1000", 0, null, metrics);
+        int debug = 0;
+        int info = 0;
+        int error = 0;
+        for (int i = 0; i < 5000; i++) {
+            debug += reducer.accept(event(Level.DEBUG, "app", i, "debug " + i)) ? 1 : 0;
+            info += reducer.accept(event(Level.INFO, "app", i, "info " + i)) ? 1 : 0;
+            error += reducer.accept(event(Level.ERROR, "app", i, "error " + i)) ? 1 : 0;
+        }
+        //one second of burst (plus what refilled while the loop ran)
+        Assertions.assertTrue(debug >= 100 && debug < 200, "debug " + debug);
+        Assertions.assertTrue(info >= 1000 && info < 1500, "info " + info);
+        Assertions.assertEquals(5000, error);
+        Assertions.assertEquals(10000 - debug - info, metrics.getEventsRateLimited());
+    }
+
+    @Test
+    void testInvalidRateLimits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventReducer.create("NOTALEVEL=10", 0, null, metrics()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventReducer.create("INFO=0", 0, null, metrics()));
+        Assertions.assertThrows(NumberFormatException.class, () -> EventReducer.create("INFO=fast", 0, null, metrics()));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram();
+        Assertions.assertEquals(0, histogram.percentile(0.99));
+        for (long v = 1; v <= 10000; v++) {
+            histogram.record(v);
+        }
+        Assertions.assertEquals(10000, histogram.count());
+        Assertions.assertEquals(10000, histogram.max());
+        Assertions.assertEquals(5000.5, histogram.mean(), 0.001);
+        //within 1/16 of the exact value
+        Assertions.assertEquals(5000, histogram.percentile(0.50), 5000 / 16);
+        Assertions.assertEquals(9900, histogram.percentile(0.99), 9900 / 16);
+        Assertions.assertEquals(10000, histogram.percentile(1.0));
+    }
+
+    @Test
+    void testBuckets() {
+        //small values are exact, every value maps to a bucket that contains it
+        for (long v = 0; v < 16; v++) {
+            Assertions.assertEquals(v, Histogram.value(Histogram.index(v)));
+        }
+        long[] values = { 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE };
+        for (long v : values) {
+            long estimate = Histogram.value(Histogram.index(v));
+            Assertions.assertTrue(Math.abs(estimate - v) <= v / 16 + 1, v + " -> " + estimate);
+        }
+    }
+}
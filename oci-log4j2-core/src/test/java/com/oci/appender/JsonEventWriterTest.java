@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JsonEventWriterTest {
+
+    @Test
+    void testFields() {
+        SortedArrayStringMap mdc = new SortedArrayStringMap();
+        mdc.putValue("requestId", "42");
+        mdc.putValue("tenant", "acme");
+        StringBuilder sb = new StringBuilder();
+        JsonEventWriter.write(Log4jLogEvent.newBuilder()
+                .setLevel(Level.WARN)
+                .setLoggerName("com.acme.Service")
+                .setThreadName("main")
+                .setMarker(MarkerManager.getMarker("AUDIT"))
+                .setContextData(mdc)
+                .setMessage(new ParameterizedMessage("user {} logged in", "bob"))
+                .build(), sb);
+        Assertions.assertEquals("{\"level\":\"WARN\",\"logger\":\"com.acme.Service\",\"thread\":\"main\",\"marker\":\"AUDIT\","
+                + "\"message\":\"user bob logged in\",\"mdc\":{\"requestId\":\"42\",\"tenant\":\"acme\"}}", sb.toString());
+    }
+
+    @Test
+    void testEscaping() {
+        StringBuilder sb = new StringBuilder();
+        JsonEventWriter.write(Log4jLogEvent.newBuilder()
+                .setLevel(Level.ERROR)
+                .setLoggerName("app")
+                .setThreadName("worker \"1\"")
+                .setMessage(new SimpleMessage("line1\nline2 \"quoted\" \\ tab\t"))
+                .setThrown(new IllegalStateException("boom"))
+                .build(), sb);
+        String json = sb.toString();
+        Assertions.assertTrue(json.startsWith("{\"level\":\"ERROR\",\"logger\":\"app\",\"thread\":\"worker \\\"1\\\"\","), json);
+        Assertions.assertTrue(json.contains("\"message\":\"line1\\nline2 \\\"quoted\\\" \\\\ tab\\t\""), json);
+        Assertions.assertTrue(json.contains("\"exception\":\"java.lang.IllegalStateException: boom"), json);
+        Assertions.assertTrue(json.endsWith("\"}"), json);
+        //no raw control characters left
+        Assertions.assertFalse(json.contains("\n"), json);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.oci.client.OciLoggingClient;
+import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyClientTest {
+
+    @Test
+    void testInitializedInBackground() throws Exception {
+        OciLoggingClient delegate = Mockito.mock(OciLoggingClient.class);
+        CountDownLatch building = new CountDownLatch(1);
+        LazyClient client = new LazyClient("test", () -> {
+            try {
+                building.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return delegate;
+        });
+        CountDownLatch ready = new CountDownLatch(1);
+        client.onReady(ready::countDown);
+        Assertions.assertFalse(client.isReady());
+        Assertions.assertThrows(IllegalStateException.class, () -> client.putLogs(PutLogsRequest.builder().build()));
+        Assertions.assertFalse(client.awaitReady(50, TimeUnit.MILLISECONDS));
+
+        building.countDown();
+        Assertions.assertTrue(client.awaitReady(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(ready.await(5, TimeUnit.SECONDS));
+        PutLogsRequest request = PutLogsRequest.builder().build();
+        client.putLogs(request);
+        Mockito.verify(delegate).putLogs(request);
+        client.close();
+        Mockito.verify(delegate).close();
+    }
+
+    @Test
+    void testFailedInitializationIsRetried() throws Exception {
+        OciLoggingClient delegate = Mockito.mock(OciLoggingClient.class);
+        AtomicInteger attempts = new AtomicInteger();
+        LazyClient client = new LazyClient("test", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException("metadata service not reachable");
+            }
+            return delegate;
+        });
+        Assertions.assertTrue(client.awaitReady(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, attempts.get());
+        client.close();
+    }
+
+    @Test
+    void testClosedBeforeReady() throws Exception {
+        OciLoggingClient delegate = Mockito.mock(OciLoggingClient.class);
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch built = new CountDownLatch(1);
+        LazyClient client = new LazyClient("test", () -> {
+            building.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // closed while building: the client is still returned
+            }
+            built.countDown();
+            return delegate;
+        });
+        Assertions.assertTrue(building.await(5, TimeUnit.SECONDS));
+        client.close();
+        Assertions.assertFalse(client.awaitReady(50, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(built.await(5, TimeUnit.SECONDS));
+        //the client built after close() is closed at once
+        Mockito.verify(delegate, Mockito.timeout(5000)).close();
+        Assertions.assertFalse(client.isReady());
+    }
+}
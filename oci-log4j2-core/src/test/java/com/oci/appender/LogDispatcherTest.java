@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LogDispatcherTest {
+
+    private static LogDispatcher.Delivery delivery(Runnable send, List<String> events, String name) {
+        return new LogDispatcher.Delivery() {
+            @Override
+            public void send() {
+                send.run();
+            }
+
+            @Override
+            public void onSuccess() {
+                events.add(name);
+            }
+
+            @Override
+            public void onGiveUp(Exception lastError) {
+                events.add("giveUp " + name);
+            }
+        };
+    }
+
+    @Test
+    void testMaxInFlightRequests() throws Exception {
+        LogDispatcher dispatcher = new LogDispatcher("test", 2, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        List<String> events = new CopyOnWriteArrayList<>();
+        Runnable slowSend = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        Assertions.assertTrue(dispatcher.tryAcquire());
+        dispatcher.submit(null, delivery(slowSend, events, "a"));
+        Assertions.assertTrue(dispatcher.tryAcquire());
+        dispatcher.submit(null, delivery(slowSend, events, "b"));
+        //both requests are in flight at the same time
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(dispatcher.tryAcquire());
+
+        release.countDown();
+        Assertions.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, events.size());
+        dispatcher.close();
+    }
+
+    @Test
+    void testOrderPreservedAcrossRetry() throws Exception {
+        LogDispatcher dispatcher = new LogDispatcher("test", 2, true);
+        List<String> events = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable failOnce = () -> {
+            if (attempts.getAndIncrement() == 0) {
+                throw new RuntimeException("OCI down");
+            }
+        };
+
+        int lane = dispatcher.lane("INFO");
+        Assertions.assertTrue(dispatcher.tryAcquire());
+        dispatcher.submit(lane, delivery(failOnce, events, "first"));
+        Assertions.assertTrue(dispatcher.tryAcquire());
+        dispatcher.submit(lane, delivery(() -> { }, events, "second"));
+
+        //the second request waits for the retry of the first one
+        Assertions.assertTrue(dispatcher.awaitIdle(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("first", "second"), events);
+        dispatcher.close();
+    }
+
+    @Test
+    void testVirtualThreads() throws Exception {
+        LogDispatcher dispatcher = new LogDispatcher("test", 8, false, true);
+        List<String> events = new CopyOnWriteArrayList<>();
+        List<Thread> senders = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertTrue(dispatcher.tryAcquire());
+            dispatcher.submit(null, delivery(() -> senders.add(Thread.currentThread()), events, "r" + i));
+        }
+        Assertions.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(8, events.size());
+        //virtual from jdk 21, the platform pool before
+        for (Thread sender : senders) {
+            Assertions.assertTrue(sender.getName().startsWith("oci-log4j2-sender-test-"), sender.getName());
+            if (Runtime.version().feature() >= 21) {
+                Assertions.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(sender), sender.getName());
+            }
+        }
+        dispatcher.close();
+    }
+
+    @Test
+    void testSharedFlusherAndUnregister() throws Exception {
+        LogDispatcher dispatcher = new LogDispatcher("test", 1, false);
+        AtomicInteger pendingA = new AtomicInteger();
+        AtomicInteger pendingB = new AtomicInteger();
+        AtomicInteger flushedB = new AtomicInteger();
+        LogDispatcher.Source a = source(pendingA, new AtomicInteger());
+        LogDispatcher.Source b = source(pendingB, flushedB);
+        dispatcher.register(a);
+        dispatcher.register(b);
+
+        //one flusher drains both sources
+        pendingA.set(1);
+        pendingB.set(1);
+        dispatcher.wakeUp(true);
+        Thread.sleep(200);
+        Assertions.assertEquals(0, pendingA.get());
+        Assertions.assertEquals(0, pendingB.get());
+
+        //an unregistered source is not drained any more
+        dispatcher.unregister(b);
+        pendingB.set(1);
+        pendingA.set(1);
+        dispatcher.wakeUp(true);
+        Thread.sleep(200);
+        Assertions.assertEquals(0, pendingA.get());
+        Assertions.assertEquals(1, pendingB.get());
+        Assertions.assertEquals(1, flushedB.get());
+        dispatcher.close();
+    }
+
+    private static LogDispatcher.Source source(AtomicInteger pending, AtomicInteger flushed) {
+        return new LogDispatcher.Source() {
+            @Override
+            public void flush() {
+                pending.set(0);
+                flushed.incrementAndGet();
+            }
+
+            @Override
+            public long nextFlushDelay() {
+                return pending.get() > 0 ? 0L : Long.MAX_VALUE;
+            }
+        };
+    }
+}
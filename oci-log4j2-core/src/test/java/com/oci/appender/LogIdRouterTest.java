@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LogIdRouterTest {
+
+    private static LogEvent event(String loggerName, String tenant, String marker) {
+        SortedArrayStringMap mdc = new SortedArrayStringMap();
+        if (tenant != null) {
+            mdc.putValue("tenant", tenant);
+        }
+        return Log4jLogEvent.newBuilder()
+                .setLoggerName(loggerName)
+                .setContextData(mdc)
+                .setMarker(marker == null ? null : MarkerManager.getMarker(marker))
+                .setMessage(new SimpleMessage("routed"))
+                .build();
+    }
+
+    @Test
+    void testNoRouting() {
+        Assertions.assertNull(LogIdRouter.create(null, "a=ocid1.log.oc1..a"));
+        Assertions.assertNull(LogIdRouter.create(" ", null));
+    }
+
+    @Test
+    void testMdc() {
+        LogIdRouter router = LogIdRouter.create("mdc:tenant", "acme=ocid1.log.oc1..acme; globex=ocid1.log.oc1..globex");
+        Assertions.assertEquals("ocid1.log.oc1..acme", router.resolve(event("app", "acme", null)));
+        Assertions.assertEquals("ocid1.log.oc1..globex", router.resolve(event("app", "globex", null)));
+        //an ocid in the mdc is the target itself
+        Assertions.assertEquals("ocid1.log.oc1..other", router.resolve(event("app", "ocid1.log.oc1..other", null)));
+        //unknown value or no value: default logId
+        Assertions.assertNull(router.resolve(event("app", "initech", null)));
+        Assertions.assertNull(router.resolve(event("app", null, null)));
+        //cached resolution
+        Assertions.assertEquals("ocid1.log.oc1..acme", router.resolve(event("app", "acme", null)));
+    }
+
+    @Test
+    void testLoggerPrefix() {
+        LogIdRouter router = LogIdRouter.create("logger", "com.acme=ocid1.log.oc1..app,com.acme.audit=ocid1.log.oc1..audit");
+        Assertions.assertEquals("ocid1.log.oc1..audit", router.resolve(event("com.acme.audit.Login", null, null)));
+        Assertions.assertEquals("ocid1.log.oc1..audit", router.resolve(event("com.acme.audit", null, null)));
+        Assertions.assertEquals("ocid1.log.oc1..app", router.resolve(event("com.acme.http.RequestFilter", null, null)));
+        Assertions.assertNull(router.resolve(event("com.acmex.Service", null, null)));
+        Assertions.assertNull(router.resolve(event("org.other.Service", null, null)));
+    }
+
+    @Test
+    void testMarker() {
+        MarkerManager.getMarker("SECURITY_LOGIN").addParents(MarkerManager.getMarker("SECURITY"));
+        LogIdRouter router = LogIdRouter.create("marker", "SECURITY=ocid1.log.oc1..security");
+        Assertions.assertEquals("ocid1.log.oc1..security", router.resolve(event("app", null, "SECURITY")));
+        Assertions.assertEquals("ocid1.log.oc1..security", router.resolve(event("app", null, "SECURITY_LOGIN")));
+        Assertions.assertNull(router.resolve(event("app", null, "PERF")));
+        Assertions.assertNull(router.resolve(event("app", null, null)));
+    }
+
+    @Test
+    void testInvalidSpec() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LogIdRouter.create("thread", null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LogIdRouter.create("logger", "com.acme"));
+    }
+}
@@ -32,11 +32,30 @@ import org.mockito.Mockito;
 
 import com.oci.client.OciLoggingClient;
 import com.oci.client.OciLoggingClientImpl;
+import com.oci.client.TransportConfig;
 
+import com.oracle.bmc.loggingingestion.requests.PutLogsRequest;
 import com.oracle.bmc.loggingingestion.responses.PutLogsResponse;
+import com.oracle.bmc.model.BmcException;
 
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class OciAsyncAppenderTest {
 
@@ -114,4 +133,650 @@ public class OciAsyncAppenderTest {
         // Verifica: 2 tentativi
         Mockito.verify(mockClient, Mockito.times(2)).putLogs(Mockito.any());
     }
+
+    @Test
+    void testMixedLevelsInOneRequest()  throws Exception {
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenReturn(PutLogsResponse.builder().build());
+        OciAsyncAppender appender = getOciAsyncAppender("OciAsyncAppenderTest3");        
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        // Livelli alternati: prima ogni cambio di livello era una richiesta separata
+        Level[] levels = { Level.INFO, Level.DEBUG, Level.WARN, Level.INFO, Level.DEBUG };
+        for (Level level : levels) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(level)
+                    .setMessage(new SimpleMessage("Mixed " + level))
+                    .build());
+        }
+
+        Assertions.assertEquals(levels.length, appender.getQueueSize()); 
+        Thread.sleep(flushIntervalMs+500L);
+
+        Assertions.assertEquals(0, appender.getQueueSize()); 
+        Mockito.verify(mockClient, Mockito.times(1)).putLogs(Mockito.any());
+    }
+
+    @Test
+    void testFullBatchDoesNotWaitLinger()  throws Exception {
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenReturn(PutLogsResponse.builder().build());
+        OciAsyncAppender appender = getOciAsyncAppender("OciAsyncAppenderTest4");        
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        // batchSize=10: il batch pieno parte subito, senza attendere flushIntervalMs
+        for (int i = 0; i < 10; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Full batch " + i))
+                    .build());
+        }
+        Thread.sleep(500L);
+
+        Assertions.assertEquals(0, appender.getQueueSize()); 
+        Mockito.verify(mockClient, Mockito.times(1)).putLogs(Mockito.any());
+    }
+
+    @Test
+    void testRingFullDropsNewest()  throws Exception {
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenReturn(PutLogsResponse.builder().build());
+        // batch piu' grande del ring e linger lungo: nessun flush durante il test
+        OciAsyncAppender appender = new OciAsyncAppender("OciAsyncAppenderTest5", null, layout, false, 10000, 60000L);
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        for (int i = 0; i < 8292; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Overflow " + i))
+                    .build());
+        }
+
+        // QUEUE_CAPACITY=5000 arrotondata a 8192
+        // DROP_NEWEST: gli eventi oltre la capacita' sono scartati e contati
+        Assertions.assertEquals(8192, appender.getQueueSize()); 
+        Assertions.assertEquals(100, appender.getDroppedEvents()); 
+    }
+
+    private OciAsyncAppender getOverflowAppender(String name, OverflowPolicy policy, SpillLog spill) {
+        // batch piu' grande del ring e linger lungo: nessun flush durante il test
+        OciAsyncAppender appender = new OciAsyncAppender(name, null, layout, false, 10000, 60000L, false, policy, spill);
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenReturn(PutLogsResponse.builder().build());
+        appender.setClientForTest(mockClient);
+        appender.start();
+        return appender;
+    }
+
+    private void appendEvents(OciAsyncAppender appender, Level level, int count) {
+        for (int i = 0; i < count; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(level)
+                    .setMessage(new SimpleMessage("Overflow " + level + " " + i))
+                    .build());
+        }
+    }
+
+    @Test
+    void testRingFullDropsOldest()  throws Exception {
+        OciAsyncAppender appender = getOverflowAppender("OciAsyncAppenderTest10", OverflowPolicy.DROP_OLDEST, null);
+
+        appendEvents(appender, Level.INFO, 8292);
+
+        // DROP_OLDEST: il flusher libera gli slot piu' vecchi, i nuovi eventi entrano
+        Assertions.assertEquals(8192, appender.getQueueSize()); 
+        Assertions.assertEquals(100, appender.getMetrics().evicted.sum()); 
+        Assertions.assertEquals(0, appender.getMetrics().dropped.sum()); 
+    }
+
+    @Test
+    void testRingFullBlocksUpToTimeout()  throws Exception {
+        OciAsyncAppender appender = getOverflowAppender("OciAsyncAppenderTest11", OverflowPolicy.BLOCK, null);
+        appendEvents(appender, Level.INFO, 8192);
+
+        // BLOCK: il produttore aspetta blockTimeoutMs (100) e poi scarta
+        long start = System.nanoTime();
+        appendEvents(appender, Level.INFO, 1);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertTrue(elapsedMs >= 100, "append returned after " + elapsedMs + " ms");
+        Assertions.assertEquals(8192, appender.getQueueSize()); 
+        Assertions.assertEquals(1, appender.getDroppedEvents()); 
+    }
+
+    @Test
+    void testSampleAboveThreeQuarters()  throws Exception {
+        OciAsyncAppender appender = getOverflowAppender("OciAsyncAppenderTest12", OverflowPolicy.SAMPLE, null);
+
+        // fino al 75% (6144 di 8192) entra tutto, poi 1 evento ogni sampleRate (10)
+        appendEvents(appender, Level.INFO, 6144);
+        Assertions.assertEquals(6144, appender.getQueueSize()); 
+        appendEvents(appender, Level.INFO, 1000);
+
+        Assertions.assertEquals(6244, appender.getQueueSize()); 
+        Assertions.assertEquals(900, appender.getDroppedEvents()); 
+    }
+
+    @Test
+    void testLevelPriorityKeepsWarnAboveNinetyPercent()  throws Exception {
+        OciAsyncAppender appender = getOverflowAppender("OciAsyncAppenderTest13", OverflowPolicy.LEVEL_PRIORITY, null);
+
+        // oltre il 90% (7371 di 8192) entrano solo WARN e superiori
+        appendEvents(appender, Level.INFO, 7371);
+        appendEvents(appender, Level.INFO, 100);
+        appendEvents(appender, Level.DEBUG, 100);
+        appendEvents(appender, Level.WARN, 100);
+        appendEvents(appender, Level.ERROR, 100);
+
+        Assertions.assertEquals(7571, appender.getQueueSize()); 
+        Assertions.assertEquals(200, appender.getDroppedEvents()); 
+    }
+
+    @Test
+    void testSpillBeforeOverflowPolicy()  throws Exception {
+        Path directory = Files.createTempDirectory("oci-log4j2-spill-first");
+        SpillLog spill = new SpillLog(directory, 64 * 1024 * 1024);
+        OciAsyncAppender appender = getOverflowAppender("OciAsyncAppenderTest14", OverflowPolicy.BLOCK, spill);
+        appendEvents(appender, Level.INFO, 8192);
+
+        // ring pieno: gli eventi vanno nello spill log senza attendere blockTimeoutMs
+        long start = System.nanoTime();
+        appendEvents(appender, Level.INFO, 100);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertTrue(elapsedMs < 2000, "100 spilled events took " + elapsedMs + " ms");
+        Assertions.assertEquals(0, appender.getDroppedEvents()); 
+    }
+
+    @Test
+    void testReplayKeepsEntryIds()  throws Exception {
+        Path directory = Files.createTempDirectory("oci-log4j2-replay-ids");
+        SpillLog spill = new SpillLog(directory, 64 * 1024 * 1024);
+        spill.append("INFO", "testLogger", 1L, "Spilled before the restart", null, "0123456789abcdef-000000000001");
+        List<String> ids = new CopyOnWriteArrayList<>();
+        OciLoggingClient client = new OciLoggingClient() {
+            @Override
+            public PutLogsResponse putLogs(PutLogsRequest request) {
+                request.getPutLogsDetails().getLogEntryBatches()
+                        .forEach(batch -> batch.getEntries().forEach(entry -> ids.add(entry.getId())));
+                return PutLogsResponse.builder().build();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        OciAsyncAppender appender = new OciAsyncAppender("OciAsyncAppenderTest18", null, layout, false, 10, 100L, false,
+                                                         OverflowPolicy.DROP_NEWEST, spill);
+        appender.setClientForTest(client);
+        appender.start();
+        Thread.sleep(500L);
+
+        // l'evento salvato su disco e' inviato con l'id del primo tentativo
+        Assertions.assertEquals(List.of("0123456789abcdef-000000000001"), ids);
+    }
+
+    @Test
+    void testSpillPollSplitAcrossRequests()  throws Exception {
+        Path directory = Files.createTempDirectory("oci-log4j2-split-poll");
+        SpillLog before = new SpillLog(directory, 64 * 1024 * 1024);
+        char[] padding = new char[1000];
+        Arrays.fill(padding, 'x');
+        before.append("INFO", "testLogger", 1L, "Spilled 0 " + new String(padding), null, null);
+        before.append("INFO", "testLogger", 2L, "Spilled 1 " + new String(padding), null, null);
+        before.close();
+        // la richiesta con il primo record resta bloccata e poi fallisce, quella con l'ultimo record va a buon fine
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        AtomicInteger sent = new AtomicInteger();
+        OciLoggingClient client = new OciLoggingClient() {
+            @Override
+            public PutLogsResponse putLogs(PutLogsRequest request) {
+                String data = request.getPutLogsDetails().getLogEntryBatches().get(0).getEntries().get(0).getData();
+                if (data.startsWith("Spilled 0")) {
+                    inFlight.countDown();
+                    try {
+                        fail.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new RuntimeException("OCI down");
+                }
+                sent.incrementAndGet();
+                return PutLogsResponse.builder().build();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        TransportConfig transport = new TransportConfig(TransportConfig.Connector.APACHE, 2, TransportConfig.DEFAULT_KEEP_ALIVE_MS,
+                                                        TransportConfig.DEFAULT_CONNECT_TIMEOUT_MS, TransportConfig.DEFAULT_READ_TIMEOUT_MS);
+        String key = SharedDispatchers.key(null, "DEFAULT", "eu-test-3", null, "none", transport, 2, false, false);
+        SharedDispatchers.Lease lease = SharedDispatchers.acquire(key, () -> client, () -> new LogDispatcher("test-split-poll", 2, false));
+        // una sola entry da 1 KB per richiesta: i due record della stessa poll vanno in due richieste
+        OciAsyncAppender appender = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest19")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-3")
+                .setMaxInFlightRequests(2)
+                .setMaxBatchBytes(2000)
+                .setSpillDirectory(directory.toString())
+                .setJmx(false)
+                .build();
+        appender.start();
+        Assertions.assertTrue(inFlight.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 40 && sent.get() == 0; i++) {
+            Thread.sleep(50L);
+        }
+        Assertions.assertEquals(1, sent.get());
+        Thread.sleep(200L);
+
+        // l'ultimo record e' consegnato ma il primo no: il checkpoint non si muove
+        Assertions.assertEquals(0L, ByteBuffer.wrap(Files.readAllBytes(directory.resolve("checkpoint"))).getLong());
+
+        fail.countDown();
+        appender.stop(2, TimeUnit.SECONDS);
+        SpillLog after = new SpillLog(directory, 64 * 1024 * 1024);
+        List<SpillLog.Record> left = after.poll(100).records;
+        after.close();
+        Assertions.assertEquals(1, left.size());
+        Assertions.assertTrue(left.get(0).message.startsWith("Spilled 0"));
+
+        Assertions.assertTrue(SharedDispatchers.release(lease));
+        lease.dispatcher.close();
+    }
+
+    @Test
+    void testLingerWithLongDedupWindow()  throws Exception {
+        List<Long> sentAt = new CopyOnWriteArrayList<>();
+        OciLoggingClient client = new OciLoggingClient() {
+            @Override
+            public PutLogsResponse putLogs(PutLogsRequest request) {
+                sentAt.add(System.nanoTime());
+                return PutLogsResponse.builder().build();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        String key = SharedDispatchers.key(null, "DEFAULT", "eu-test-4", null, "none", TransportConfig.DEFAULT, 1, false, false);
+        SharedDispatchers.Lease lease = SharedDispatchers.acquire(key, () -> client, () -> new LogDispatcher("test-linger", 1, false));
+        OciAsyncAppender appender = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest20")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-4")
+                .setLingerMs(100)
+                .setDedupWindowMs(60000)
+                .setJmx(false)
+                .build();
+        appender.start();
+
+        // una ripetizione tiene aperta la finestra: il flusher si ferma fino al sweep, tra 60 secondi
+        for (int i = 0; i < 2; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Repeated"))
+                    .build());
+        }
+        Thread.sleep(500L);
+        Assertions.assertEquals(1, sentAt.size());
+
+        // un nuovo evento parte dopo lingerMs, non al sweep
+        long start = System.nanoTime();
+        appender.append(Log4jLogEvent.newBuilder()
+                .setLevel(Level.INFO)
+                .setMessage(new SimpleMessage("Single event"))
+                .build());
+        for (int i = 0; i < 60 && sentAt.size() < 2; i++) {
+            Thread.sleep(50L);
+        }
+        Assertions.assertEquals(2, sentAt.size());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(sentAt.get(1) - start);
+        Assertions.assertTrue(elapsedMs >= 90 && elapsedMs < 1000, "sent after " + elapsedMs + " ms");
+
+        appender.stop(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(SharedDispatchers.release(lease));
+        lease.dispatcher.close();
+    }
+
+    @Test
+    void testParkedOverflowIsSpilled()  throws Exception {
+        Path directory = Files.createTempDirectory("oci-log4j2-park-spill");
+        OciLoggingClient client = new OciLoggingClient() {
+            @Override
+            public PutLogsResponse putLogs(PutLogsRequest request) {
+                throw new RuntimeException("OCI down");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        TransportConfig transport = new TransportConfig(TransportConfig.Connector.APACHE, 6, TransportConfig.DEFAULT_KEEP_ALIVE_MS,
+                                                        TransportConfig.DEFAULT_CONNECT_TIMEOUT_MS, TransportConfig.DEFAULT_READ_TIMEOUT_MS);
+        String key = SharedDispatchers.key(null, "DEFAULT", "eu-test-5", null, "none", transport, 6, false, false);
+        SharedDispatchers.Lease lease = SharedDispatchers.acquire(key, () -> client, () -> new LogDispatcher("test-park-spill", 6, false));
+        OciAsyncAppender appender = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest21")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-5")
+                .setMaxInFlightRequests(6)
+                .setBatchSize(1)
+                .setRouteBy("logger")
+                .setRoutes("down=ocid1.log.oc1..down")
+                .setSpillDirectory(directory.toString())
+                .setJmx(false)
+                .build();
+        appender.start();
+
+        // 5 richieste fallite aprono il circuito del log "down"
+        for (int i = 0; i < 5; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setLoggerName("down")
+                    .setMessage(new SimpleMessage("Open " + i))
+                    .build());
+        }
+        for (int i = 0; i < 40 && !"OPEN".equals(appender.getMetrics().getCircuitState()); i++) {
+            Thread.sleep(50L);
+        }
+        Assertions.assertEquals("OPEN", appender.getMetrics().getCircuitState());
+
+        // oltre i 5000 messaggi parcheggiati il resto va nello spill log, non e' scartato
+        for (int i = 0; i < 5100; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setLoggerName("down")
+                    .setMessage(new SimpleMessage("Parked " + i))
+                    .build());
+        }
+        Thread.sleep(500L);
+        Assertions.assertEquals(0, appender.getDroppedEvents());
+
+        appender.stop(1, TimeUnit.SECONDS);
+        SpillLog saved = new SpillLog(directory, 64 * 1024 * 1024);
+        Assertions.assertEquals(5105, saved.poll(10000).records.size());
+        saved.close();
+
+        Assertions.assertTrue(SharedDispatchers.release(lease));
+        lease.dispatcher.close();
+    }
+
+    @Test
+    void testMetrics()  throws Exception {
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenThrow(new RuntimeException("OCI down"))
+                .thenReturn(PutLogsResponse.builder().build());
+        OciAsyncAppender appender = getOciAsyncAppender("OciAsyncAppenderTest6");        
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        for (int i = 0; i < 10; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Metrics " + i))
+                    .build());
+        }
+        // primo tentativo fallito, il secondo dopo 1 secondo di backoff
+        Thread.sleep(1500L);
+
+        AppenderMetrics metrics = appender.getMetrics();
+        Assertions.assertEquals(10, metrics.getEventsAppended()); 
+        Assertions.assertEquals(10, metrics.getEventsSent()); 
+        Assertions.assertEquals(1, metrics.getRequestsSent()); 
+        Assertions.assertEquals(1, metrics.getRequestsRetried()); 
+        Assertions.assertEquals(0, metrics.getEventsDropped()); 
+        Assertions.assertEquals(10, metrics.getRequestEntriesP99()); 
+        Assertions.assertEquals("CLOSED", metrics.getCircuitState()); 
+    }
+
+    @Test
+    void testNonRetryableErrorIsNotRetried()  throws Exception {
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenThrow(new BmcException(400, "InvalidParameter", "bad entry", null))
+                .thenReturn(PutLogsResponse.builder().build());
+        OciAsyncAppender appender = getOciAsyncAppender("OciAsyncAppenderTest7");        
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        for (int i = 0; i < 10; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Rejected " + i))
+                    .build());
+        }
+        Thread.sleep(1500L);
+
+        // un 400 fallirebbe di nuovo: nessun retry, nessun requeue
+        Mockito.verify(mockClient, Mockito.times(1)).putLogs(Mockito.any());
+        AppenderMetrics metrics = appender.getMetrics();
+        Assertions.assertEquals(0, appender.getQueueSize()); 
+        Assertions.assertEquals(10, metrics.getEventsRejected()); 
+        Assertions.assertEquals(0, metrics.getRequestsRetried()); 
+        Assertions.assertEquals("CLOSED", metrics.getCircuitState()); 
+    }
+
+    @Test
+    void testStopHonorsTimeout()  throws Exception {
+        Path leftovers = Paths.get(System.getProperty("java.io.tmpdir"), "oci-log4j2-OciAsyncAppenderTest8");
+        if (Files.exists(leftovers)) {
+            try (Stream<Path> files = Files.walk(leftovers)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenThrow(new RuntimeException("OCI down"));
+        OciAsyncAppender appender = getOciAsyncAppender("OciAsyncAppenderTest8");        
+        appender.setClientForTest(mockClient);
+        appender.start();
+
+        for (int i = 0; i < 5; i++) {
+            appender.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Shutdown " + i))
+                    .build());
+        }
+
+        // OCI giu': stop() non aspetta oltre il timeout e salva i messaggi non inviati
+        long start = System.nanoTime();
+        appender.stop(2, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsedMs < 2500, "stop took " + elapsedMs + " ms");
+
+        SpillLog saved = new SpillLog(leftovers, 1024 * 1024);
+        Assertions.assertEquals(5, saved.poll(100).records.size());
+        saved.close();
+    }
+
+    @Test
+    void testStopWithSharedDispatcher()  throws Exception {
+        Path spillA = Files.createTempDirectory("oci-log4j2-shared-stop");
+        // il primo PutLogs resta bloccato oltre la scadenza dello stop() e poi fallisce
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        AtomicInteger sent = new AtomicInteger();
+        OciLoggingClient client = new OciLoggingClient() {
+            private final AtomicInteger calls = new AtomicInteger();
+
+            @Override
+            public PutLogsResponse putLogs(PutLogsRequest request) {
+                if (calls.getAndIncrement() == 0) {
+                    inFlight.countDown();
+                    try {
+                        fail.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new RuntimeException("OCI down");
+                }
+                sent.addAndGet(request.getPutLogsDetails().getLogEntryBatches().get(0).getEntries().size());
+                return PutLogsResponse.builder().build();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        // stesso client e dispatcher per i due appender (e per il test, che chiude per ultimo)
+        String key = SharedDispatchers.key(null, "DEFAULT", "eu-test-1", null, "none", TransportConfig.DEFAULT, 1, false, false);
+        SharedDispatchers.Lease lease = SharedDispatchers.acquire(key, () -> client, () -> new LogDispatcher("test-shared-stop", 1, false));
+        OciAsyncAppender first = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest15")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-1")
+                .setBatchSize(5)
+                .setSpillDirectory(spillA.toString())
+                .setJmx(false)
+                .build();
+        OciAsyncAppender second = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest16")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..bbbb")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-1")
+                .setBatchSize(5)
+                .setJmx(false)
+                .build();
+        Assertions.assertEquals(3, SharedDispatchers.references(key));
+        first.start();
+        second.start();
+
+        for (int i = 0; i < 5; i++) {
+            first.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("In flight " + i))
+                    .build());
+        }
+        Assertions.assertTrue(inFlight.await(2, TimeUnit.SECONDS));
+
+        // la richiesta in volo e' ripresa dallo stop() e salvata prima di chiudere lo spill log
+        first.stop(1, TimeUnit.SECONDS);
+        fail.countDown();
+        for (int i = 0; i < 5; i++) {
+            second.append(Log4jLogEvent.newBuilder()
+                    .setLevel(Level.INFO)
+                    .setMessage(new SimpleMessage("Second " + i))
+                    .build());
+        }
+        second.stop(5, TimeUnit.SECONDS);
+
+        // il fallimento arrivato dopo lo stop non rimette in coda e non perde eventi
+        SpillLog saved = new SpillLog(spillA, 1024 * 1024);
+        Assertions.assertEquals(5, saved.poll(100).records.size());
+        saved.close();
+        Assertions.assertEquals(0, first.getQueueSize());
+        Assertions.assertEquals(0, first.getMetrics().getEventsRejected());
+        Assertions.assertEquals(5, sent.get());
+
+        Assertions.assertTrue(SharedDispatchers.release(lease));
+        lease.dispatcher.close();
+    }
+
+    @Test
+    void testMBeanOfReconfiguredAppender()  throws Exception {
+        OciLoggingClient mockClient = Mockito.mock(OciLoggingClient.class); 
+        Mockito.when(mockClient.putLogs(Mockito.any()))
+                .thenReturn(PutLogsResponse.builder().build());
+        String key = SharedDispatchers.key(null, "DEFAULT", "eu-test-2", null, "none", TransportConfig.DEFAULT, 1, false, false);
+        SharedDispatchers.Lease lease = SharedDispatchers.acquire(key, () -> mockClient, () -> new LogDispatcher("test-mbean", 1, false));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.oci.appender:type=OciAsyncAppender,name=\"OciAsyncAppenderTest17\"");
+
+        // reconfigure: il nuovo appender parte prima che il vecchio si fermi
+        OciAsyncAppender old = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest17")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-2")
+                .build();
+        old.start();
+        old.append(Log4jLogEvent.newBuilder()
+                .setLevel(Level.INFO)
+                .setMessage(new SimpleMessage("Old configuration"))
+                .build());
+        Assertions.assertEquals(1L, server.getAttribute(name, "EventsAppended"));
+
+        OciAsyncAppender current = OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest17")
+                .setLayout(layout)
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setConfigFile("/nonexistent/oci-config")
+                .setRegion("eu-test-2")
+                .build();
+        current.start();
+        Assertions.assertEquals(0L, server.getAttribute(name, "EventsAppended"));
+
+        // lo stop del vecchio appender non toglie l'mbean del nuovo
+        old.stop(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(server.isRegistered(name));
+        Assertions.assertEquals(0L, server.getAttribute(name, "EventsAppended"));
+
+        current.stop(1, TimeUnit.SECONDS);
+        Assertions.assertFalse(server.isRegistered(name));
+
+        Assertions.assertTrue(SharedDispatchers.release(lease));
+        lease.dispatcher.close();
+    }
+
+    @Test
+    void testBuilderRejectsInvalidAttributes() {
+        String key = SharedDispatchers.key(null, "DEFAULT", null, null, "none", TransportConfig.DEFAULT, 1, false, false);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest9")
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setOverflowPolicy("DROP_EVERYTHING")
+                .build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest9")
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setFormat("XML")
+                .build());
+        //a 500 bytes request has no room for an entry
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest9")
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setMaxBatchBytes(500)
+                .build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest9")
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setRouteBy("bogus")
+                .build());
+        //rejected before the shared client is created
+        Assertions.assertEquals(0, SharedDispatchers.references(key));
+        //rejected after: the lease is released
+        Assertions.assertThrows(NumberFormatException.class, () -> OciAsyncAppender.newBuilder()
+                .setName("OciAsyncAppenderTest9")
+                .setLogId("ocid1.log.oc1..aaaa")
+                .setRateLimits("INFO=fast")
+                .build());
+        Assertions.assertEquals(0, SharedDispatchers.references(key));
+    }
 }
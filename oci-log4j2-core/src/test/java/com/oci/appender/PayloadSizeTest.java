@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class PayloadSizeTest {
+
+    @Test
+    void testUtf8Length() {
+        String s = "aè€😀";
+        Assertions.assertEquals(s.getBytes(StandardCharsets.UTF_8).length, PayloadSize.utf8Length(s));
+    }
+
+    @Test
+    void testJsonLength() {
+        String s = "a\"b\\c\nd\u0001è";
+        Assertions.assertEquals(1 + 2 + 1 + 2 + 1 + 2 + 1 + 6 + 2, PayloadSize.jsonLength(s));
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(PayloadSize.jsonLength(s), PayloadSize.jsonLength(utf8, utf8.length));
+    }
+
+    @Test
+    void testSplitCountsEscapes() {
+        String s = "\"quoted\"\n".repeat(100);
+        List<String> chunks = PayloadSize.split(s, 100);
+        Assertions.assertEquals(s, String.join("", chunks));
+        for (String chunk : chunks) {
+            Assertions.assertTrue(PayloadSize.jsonLength(chunk) <= 100);
+        }
+    }
+
+    @Test
+    void testSplit() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i % 2 == 0 ? "€" : "😀");
+        }
+        String s = sb.toString();
+        List<String> chunks = PayloadSize.split(s, 100);
+        Assertions.assertEquals(s, String.join("", chunks));
+        for (String chunk : chunks) {
+            Assertions.assertTrue(chunk.getBytes(StandardCharsets.UTF_8).length <= 100);
+            //never cut inside a surrogate pair
+            Assertions.assertFalse(Character.isLowSurrogate(chunk.charAt(0)));
+        }
+    }
+}
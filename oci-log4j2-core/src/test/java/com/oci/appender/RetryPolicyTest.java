@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.oracle.bmc.model.BmcException;
+
+public class RetryPolicyTest {
+
+    @Test
+    void testRetryable() {
+        Assertions.assertTrue(RetryPolicy.isRetryable(new BmcException(429, "TooManyRequests", "throttled", null)));
+        Assertions.assertTrue(RetryPolicy.isRetryable(new BmcException(503, "ServiceUnavailable", "down", null)));
+        Assertions.assertTrue(RetryPolicy.isRetryable(new BmcException(-1, null, "read timed out", null)));
+        Assertions.assertTrue(RetryPolicy.isRetryable(new RuntimeException("connection reset")));
+        Assertions.assertFalse(RetryPolicy.isRetryable(new BmcException(400, "InvalidParameter", "bad entry", null)));
+        Assertions.assertFalse(RetryPolicy.isRetryable(new BmcException(404, "NotAuthorizedOrNotFound", "no log", null)));
+        //the status of a wrapped exception counts
+        Assertions.assertFalse(RetryPolicy.isRetryable(new RuntimeException(new BmcException(400, null, "bad", null))));
+    }
+
+    @Test
+    void testJitteredBackoff() {
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long ceiling = Math.min(1000L << attempt, 30000L);
+            for (int i = 0; i < 100; i++) {
+                long backoff = RetryPolicy.backoffMillis(attempt);
+                Assertions.assertTrue(backoff >= ceiling / 2 && backoff <= ceiling, "attempt " + attempt + ": " + backoff);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.apache.logging.log4j.Level;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RingBufferTest {
+
+    private static void fill(LogSlot slot, String message) {
+        slot.start(Level.INFO, "test", System.currentTimeMillis());
+        slot.text.append(message);
+        slot.valid = true;
+    }
+
+    @Test
+    void testClaimUntilFull() {
+        RingBuffer<LogSlot> ring = new RingBuffer<>(3, LogSlot::new);
+        //capacity is rounded to the next power of two
+        Assertions.assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            long seq = ring.tryClaim();
+            Assertions.assertEquals(i, seq);
+            fill(ring.get(seq), "m" + i);
+            ring.publish(seq);
+        }
+        Assertions.assertEquals(-1L, ring.tryClaim());
+        Assertions.assertEquals(4, ring.size());
+
+        Assertions.assertEquals("m0", ring.peek().materialize());
+        ring.consume();
+        Assertions.assertTrue(ring.tryClaim() >= 0);
+    }
+
+    @Test
+    void testPeekWaitsForPublish() {
+        RingBuffer<LogSlot> ring = new RingBuffer<>(4, LogSlot::new);
+        long first = ring.tryClaim();
+        long second = ring.tryClaim();
+        fill(ring.get(second), "second");
+        ring.publish(second);
+        //the first slot is claimed but not published: the consumer must not skip it
+        Assertions.assertNull(ring.peek());
+        fill(ring.get(first), "first");
+        ring.publish(first);
+        Assertions.assertEquals("first", ring.peek().materialize());
+    }
+
+    @Test
+    void testMultipleProducers() throws Exception {
+        RingBuffer<LogSlot> ring = new RingBuffer<>(1024, LogSlot::new);
+        int producers = 8;
+        int perProducer = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger consumed = new AtomicInteger();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long seq;
+                    while ((seq = ring.tryClaim()) < 0) {
+                        Thread.onSpinWait();
+                    }
+                    fill(ring.get(seq), "x");
+                    ring.publish(seq);
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        while (consumed.get() < producers * perProducer) {
+            LogSlot slot = ring.peek();
+            if (slot == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Assertions.assertTrue(slot.valid);
+            slot.clear();
+            ring.consume();
+            consumed.incrementAndGet();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assertions.assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.oci.client.OciLoggingClient;
+import com.oci.client.TransportConfig;
+
+public class SharedDispatchersTest {
+
+    @Test
+    void testReferenceCounting() {
+        String key = SharedDispatchers.key("/tmp/oci-config", "DEFAULT", "eu-frankfurt-1", null, "none", TransportConfig.DEFAULT, 1, false, false);
+        OciLoggingClient client = Mockito.mock(OciLoggingClient.class);
+        LogDispatcher dispatcher = new LogDispatcher("test-shared", 1, false);
+
+        SharedDispatchers.Lease first = SharedDispatchers.acquire(key, () -> client, () -> dispatcher);
+        //the second appender gets the same client and dispatcher, no new ones are created
+        SharedDispatchers.Lease second = SharedDispatchers.acquire(key,
+                () -> { throw new AssertionError("client created twice"); },
+                () -> { throw new AssertionError("dispatcher created twice"); });
+        Assertions.assertTrue(first == second);
+        Assertions.assertEquals(2, SharedDispatchers.references(key));
+
+        Assertions.assertFalse(SharedDispatchers.release(first));
+        Assertions.assertTrue(SharedDispatchers.release(second));
+        Assertions.assertEquals(0, SharedDispatchers.references(key));
+        dispatcher.close();
+    }
+
+    @Test
+    void testKey() {
+        //different profile, region or sender settings: different dispatcher
+        String key = SharedDispatchers.key("/tmp/oci-config", "DEFAULT", null, null, "none", TransportConfig.DEFAULT, 1, false, false);
+        Assertions.assertNotEquals(key, SharedDispatchers.key("/tmp/oci-config", "AUDIT", null, null, "none", TransportConfig.DEFAULT, 1, false, false));
+        Assertions.assertNotEquals(key, SharedDispatchers.key("/tmp/oci-config", "DEFAULT", "us-ashburn-1", null, "none", TransportConfig.DEFAULT, 1, false, false));
+        Assertions.assertNotEquals(key, SharedDispatchers.key("/tmp/oci-config", "DEFAULT", null, null, "none", TransportConfig.DEFAULT, 4, false, false));
+        Assertions.assertNotEquals(key, SharedDispatchers.key("/tmp/oci-config", "DEFAULT", null, null, "none", TransportConfig.DEFAULT, 1, false, true));
+        Assertions.assertNotEquals(key, SharedDispatchers.key("/tmp/oci-config", "DEFAULT", null, null, "none",
+                new TransportConfig(TransportConfig.Connector.JDK, 1, 0, 1000, 5000), 1, false, false));
+        Assertions.assertEquals(key, SharedDispatchers.key("/tmp/oci-config", "DEFAULT", null, null, "none", TransportConfig.DEFAULT, 1, false, false));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.appender;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class SpillLogTest {
+
+    @Test
+    void testAppendAndPoll() throws Exception {
+        Path dir = Files.createTempDirectory("oci-spill");
+        SpillLog spill = new SpillLog(dir, 1024 * 1024, 4096);
+        Assertions.assertTrue(spill.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(spill.append("INFO", "testLogger", i, "message " + i, null, null));
+        }
+        List<SpillLog.Record> records = spill.poll(1000).records;
+        Assertions.assertEquals(100, records.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals("message " + i, records.get(i).message);
+            Assertions.assertEquals(i, records.get(i).timestamp);
+        }
+        Assertions.assertTrue(spill.isEmpty());
+        spill.close();
+    }
+
+    @Test
+    void testReplayAfterRestart() throws Exception {
+        Path dir = Files.createTempDirectory("oci-spill");
+        SpillLog spill = new SpillLog(dir, 1024 * 1024, 4096);
+        //several segments
+        for (int i = 0; i < 500; i++) {
+            spill.append("WARN", "testLogger", i, i % 2 == 0 ? "message " + i : "routed " + i, i % 2 == 0 ? null : "ocid1.log.oc1..audit",
+                         "0123456789abcdef-" + i);
+        }
+        SpillLog.Batch delivered = spill.poll(200);
+        Assertions.assertEquals(200, delivered.records.size());
+        spill.commit(delivered.position);
+        spill.close();
+
+        //the checkpoint resumes after the records already delivered
+        SpillLog reopened = new SpillLog(dir, 1024 * 1024, 4096);
+        List<SpillLog.Record> records = reopened.poll(1000).records;
+        Assertions.assertEquals(300, records.size());
+        Assertions.assertEquals("message 200", records.get(0).message);
+        Assertions.assertEquals("WARN", records.get(0).level);
+        Assertions.assertNull(records.get(0).logId);
+        Assertions.assertEquals("routed 201", records.get(1).message);
+        Assertions.assertEquals("ocid1.log.oc1..audit", records.get(1).logId);
+        //the entry id of the first attempt is kept
+        Assertions.assertEquals("0123456789abcdef-200", records.get(0).id);
+
+        //new records are appended after the recovered ones
+        reopened.append("ERROR", null, 1, "after restart", null, null);
+        records = reopened.poll(10).records;
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertNull(records.get(0).loggerName);
+        Assertions.assertNull(records.get(0).id);
+        reopened.close();
+    }
+
+    @Test
+    void testUncommittedRecordsAreReadAgain() throws Exception {
+        Path dir = Files.createTempDirectory("oci-spill");
+        SpillLog spill = new SpillLog(dir, 1024 * 1024, 4096);
+        for (int i = 0; i < 300; i++) {
+            spill.append("INFO", "testLogger", i, "message " + i, null, null);
+        }
+        SpillLog.Batch first = spill.poll(100);
+        SpillLog.Batch second = spill.poll(100);
+        //the second request is delivered before the first one: the checkpoint waits for the first
+        spill.commit(second.position);
+        spill.close();
+
+        SpillLog reopened = new SpillLog(dir, 1024 * 1024, 4096);
+        List<SpillLog.Record> records = reopened.poll(1000).records;
+        Assertions.assertEquals(300, records.size());
+        Assertions.assertEquals("message 0", records.get(0).message);
+        reopened.close();
+    }
+
+    @Test
+    void testCommitReleasesSegments() throws Exception {
+        Path dir = Files.createTempDirectory("oci-spill");
+        SpillLog spill = new SpillLog(dir, 2 * 4096, 4096);
+        String message = "0123456789012345678901234567890123456789";
+        int written = 0;
+        while (spill.append("INFO", "testLogger", 0, message, null, null)) {
+            written++;
+        }
+        //read but not delivered: the segments still count against maxBytes
+        SpillLog.Batch batch = spill.poll(written);
+        Assertions.assertEquals(written, batch.records.size());
+        Assertions.assertFalse(spill.append("INFO", "testLogger", 0, message, null, null));
+
+        spill.commit(batch.position);
+        Assertions.assertTrue(spill.append("INFO", "testLogger", 0, message, null, null));
+        spill.close();
+    }
+
+    @Test
+    void testMaxBytes() throws Exception {
+        Path dir = Files.createTempDirectory("oci-spill");
+        SpillLog spill = new SpillLog(dir, 2 * 4096, 4096);
+        int written = 0;
+        while (spill.append("INFO", "testLogger", 0, "0123456789012345678901234567890123456789", null, null)) {
+            written++;
+        }
+        //two segments of 4096 bytes, 86 bytes per record: length, time, level, logger, message, logId, id
+        int record = 4 + 8 + (4 + 4) + (4 + 10) + (4 + 40) + 4 + 4;
+        Assertions.assertEquals(2 * (4096 / record), written);
+        spill.close();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.client;
+
+import com.oracle.bmc.loggingingestion.model.LogEntry;
+import com.oracle.bmc.loggingingestion.model.LogEntryBatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ChannelFallbackSinkTest {
+
+    private static LogEntryBatch batch(String... data) {
+        List<LogEntry> entries = new ArrayList<>();
+        for (String d : data) {
+            entries.add(LogEntry.builder().data(d).build());
+        }
+        return LogEntryBatch.builder().entries(entries).build();
+    }
+
+    @Test
+    void testOneLinePerEntry() throws Exception {
+        Path file = Files.createTempFile("oci-fallback", ".log");
+        FallbackSink sink = FallbackSink.forName("file:" + file);
+        sink.write("ocid1.log.oc1..aaaa", Arrays.asList(batch("first\n", "second"), batch("àèìòù €")));
+        sink.write(null, Arrays.asList(batch("third\n")));
+        sink.close();
+        Assertions.assertEquals("first\nsecond\nàèìòù €\nthird\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRequestBiggerThanBuffer() throws Exception {
+        Path file = Files.createTempFile("oci-fallback", ".log");
+        ChannelFallbackSink sink = ChannelFallbackSink.open(file);
+        StringBuilder expected = new StringBuilder();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            //multi byte characters across the buffer boundaries
+            String line = "entry " + i + " ünïcödé " + "x".repeat(i % 97);
+            lines.add(line);
+            expected.append(line).append('\n');
+        }
+        for (int round = 0; round < 2; round++) {
+            sink.write(null, Arrays.asList(batch(lines.toArray(new String[0]))));
+        }
+        sink.close();
+        Assertions.assertEquals(expected.toString() + expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUnknownSink() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackSink.forName("com.example.Missing"));
+    }
+}
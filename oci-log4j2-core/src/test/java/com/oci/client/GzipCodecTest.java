@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Luca Scarpa
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oci.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+public class GzipCodecTest {
+
+    private static String decode(PayloadBuffer body) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.array(), 0, body.size()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"data\":\"12:00:00.000 INFO  testLogger - message ").append(i).append("\"},");
+        }
+        byte[] src = json.toString().getBytes(StandardCharsets.UTF_8);
+        GzipCodec codec = new GzipCodec();
+        PayloadBuffer body = new PayloadBuffer(16);
+        codec.encode(src, src.length, body);
+        Assertions.assertTrue(body.size() < src.length / 5);
+        Assertions.assertEquals(json.toString(), decode(body));
+
+        //the deflater and the buffer are reused by the next request
+        byte[] small = "{\"data\":\"àèìòù\"}".getBytes(StandardCharsets.UTF_8);
+        body.recycle(16);
+        codec.encode(small, small.length, body);
+        Assertions.assertEquals("{\"data\":\"àèìòù\"}", decode(body));
+    }
+
+    @Test
+    void testPoolSharedByThreads() throws Exception {
+        //more threads than pooled deflaters: the extra ones are ended, every body stays valid
+        GzipCodec codec = new GzipCodec(Deflater.BEST_SPEED, 2);
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger valid = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            String text = "{\"data\":\"thread " + t + "\"}";
+            Thread thread = new Thread(() -> {
+                byte[] src = text.getBytes(StandardCharsets.UTF_8);
+                PayloadBuffer body = new PayloadBuffer(16);
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        body.recycle(16);
+                        codec.encode(src, src.length, body);
+                        if (text.equals(decode(body))) {
+                            valid.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(800, valid.get());
+        codec.close();
+    }
+
+    @Test
+    void testForName() {
+        Assertions.assertNull(PayloadCodec.forName("none"));
+        Assertions.assertNull(PayloadCodec.forName(null));
+        Assertions.assertTrue(PayloadCodec.forName("GZIP") instanceof GzipCodec);
+        Assertions.assertTrue(PayloadCodec.forName(GzipCodec.class.getName()) instanceof GzipCodec);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PayloadCodec.forName("lz4"));
+    }
+}